@@ -0,0 +1,9 @@
+package com.sap.aii.af.lib.mp.module;
+
+/**
+ * Stand-in for the SAP adapter framework API, only the members used by the module.
+ */
+public interface Module {
+
+	ModuleData process(ModuleContext moduleContext, ModuleData inputModuleData) throws ModuleException;
+}
@@ -0,0 +1,11 @@
+package com.sap.aii.af.lib.mp.module;
+
+/**
+ * Stand-in for the SAP adapter framework API, only the members used by the module.
+ */
+public interface ModuleContext {
+
+	String getChannelID();
+
+	String getContextData(String name);
+}
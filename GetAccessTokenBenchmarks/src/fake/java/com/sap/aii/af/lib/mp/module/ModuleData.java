@@ -0,0 +1,16 @@
+package com.sap.aii.af.lib.mp.module;
+
+/**
+ * Stand-in for the SAP adapter framework API, only the members used by the module.
+ */
+public class ModuleData {
+	private Object principalData;
+
+
+	public Object getPrincipalData() {
+		return principalData;
+	}
+	public void setPrincipalData(Object principalData) {
+		this.principalData = principalData;
+	}
+}
@@ -0,0 +1,13 @@
+package com.sap.aii.af.lib.mp.module;
+
+/**
+ * Stand-in for the SAP adapter framework API, only the members used by the module.
+ */
+public class ModuleException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+
+	public ModuleException(String message) {
+		super(message);
+	}
+}
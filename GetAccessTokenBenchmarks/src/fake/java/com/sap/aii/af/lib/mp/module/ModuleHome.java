@@ -0,0 +1,7 @@
+package com.sap.aii.af.lib.mp.module;
+
+/**
+ * Stand-in for the SAP adapter framework API, only referenced by the bean annotations.
+ */
+public interface ModuleHome {
+}
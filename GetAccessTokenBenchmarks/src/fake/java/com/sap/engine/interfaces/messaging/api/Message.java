@@ -0,0 +1,15 @@
+package com.sap.engine.interfaces.messaging.api;
+
+import com.sap.engine.interfaces.messaging.api.exception.InvalidParamException;
+
+/**
+ * Stand-in for the SAP messaging API, only the members used by the module.
+ */
+public interface Message {
+
+	MessageKey getMessageKey();
+
+	String getMessageProperty(MessagePropertyKey key);
+
+	void setMessageProperty(MessagePropertyKey key, String value) throws InvalidParamException;
+}
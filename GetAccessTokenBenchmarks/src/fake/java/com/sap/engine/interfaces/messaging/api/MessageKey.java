@@ -0,0 +1,24 @@
+package com.sap.engine.interfaces.messaging.api;
+
+/**
+ * Stand-in for the SAP messaging API, identifies a message in audit log entries.
+ */
+public class MessageKey {
+	private final String messageId;
+
+
+	public MessageKey(String messageId) {
+		this.messageId = messageId;
+	}
+
+
+	public String getMessageId() {
+		return messageId;
+	}
+
+
+	@Override
+	public String toString() {
+		return messageId;
+	}
+}
@@ -0,0 +1,50 @@
+package com.sap.engine.interfaces.messaging.api;
+
+/**
+ * Stand-in for the SAP messaging API, name and namespace of a dynamic configuration property.
+ */
+public class MessagePropertyKey {
+	private final String propertyName;
+	private final String propertyNamespace;
+
+
+	public MessagePropertyKey(String propertyName, String propertyNamespace) {
+		this.propertyName = propertyName;
+		this.propertyNamespace = propertyNamespace;
+	}
+
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof MessagePropertyKey)) {
+			return false;
+		}
+
+		MessagePropertyKey other = (MessagePropertyKey) obj;
+		return propertyName.equals(other.propertyName) && propertyNamespace.equals(other.propertyNamespace);
+	}
+
+
+	@Override
+	public int hashCode() {
+		return 31 * propertyName.hashCode() + propertyNamespace.hashCode();
+	}
+
+
+	@Override
+	public String toString() {
+		return propertyNamespace + propertyName;
+	}
+
+
+	/* Getters */
+	public String getPropertyName() {
+		return propertyName;
+	}
+	public String getPropertyNamespace() {
+		return propertyNamespace;
+	}
+}
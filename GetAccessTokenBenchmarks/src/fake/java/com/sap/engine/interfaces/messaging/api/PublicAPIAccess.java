@@ -0,0 +1,12 @@
+package com.sap.engine.interfaces.messaging.api;
+
+import com.sap.engine.interfaces.messaging.api.auditlog.AuditAccess;
+import com.sap.engine.interfaces.messaging.api.exception.MessagingException;
+
+/**
+ * Stand-in for the SAP messaging API, only the members used by the module.
+ */
+public interface PublicAPIAccess {
+
+	AuditAccess getAuditAccess() throws MessagingException;
+}
@@ -0,0 +1,48 @@
+package com.sap.engine.interfaces.messaging.api;
+
+import com.sap.engine.interfaces.messaging.api.auditlog.AuditAccess;
+import com.sap.engine.interfaces.messaging.api.auditlog.AuditLogStatus;
+import com.sap.engine.interfaces.messaging.api.exception.MessagingException;
+
+/**
+ * Stand-in for the SAP messaging API. Audit log entries are discarded, unless another
+ * <i>AuditAccess</i> is installed before the bean is initialized.
+ */
+public class PublicAPIAccessFactory {
+	private static volatile AuditAccess auditAccess = new DiscardingAuditAccess();
+
+
+	private PublicAPIAccessFactory() {
+	}
+
+
+	public static PublicAPIAccess getPublicAPIAccess() throws MessagingException {
+		return new PublicAPIAccess() {
+			@Override
+			public AuditAccess getAuditAccess() {
+				return auditAccess;
+			}
+		};
+	}
+
+
+	/**
+	 * Install the <i>AuditAccess</i> returned to beans initialized from now on.
+	 * @param access <i>AuditAccess</i> receiving audit log entries
+	 */
+	public static void setAuditAccess(AuditAccess access) {
+		auditAccess = access;
+	}
+
+
+	/**
+	 * Discards entries. No state is shared, so concurrent messages do not contend here.
+	 */
+	private static final class DiscardingAuditAccess implements AuditAccess {
+
+		@Override
+		public void addAuditLogEntry(MessageKey key, AuditLogStatus status, String text) {
+			// Discard
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.sap.engine.interfaces.messaging.api.auditlog;
+
+import com.sap.engine.interfaces.messaging.api.MessageKey;
+
+/**
+ * Stand-in for the SAP messaging API, only the members used by the module.
+ */
+public interface AuditAccess {
+
+	void addAuditLogEntry(MessageKey key, AuditLogStatus status, String text);
+}
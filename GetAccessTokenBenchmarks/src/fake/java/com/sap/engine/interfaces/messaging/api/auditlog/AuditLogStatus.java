@@ -0,0 +1,8 @@
+package com.sap.engine.interfaces.messaging.api.auditlog;
+
+/**
+ * Stand-in for the SAP messaging API.
+ */
+public enum AuditLogStatus {
+	SUCCESS, WARNING, ERROR
+}
@@ -0,0 +1,13 @@
+package com.sap.engine.interfaces.messaging.api.exception;
+
+/**
+ * Stand-in for the SAP messaging API.
+ */
+public class InvalidParamException extends MessagingException {
+	private static final long serialVersionUID = 1L;
+
+
+	public InvalidParamException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,13 @@
+package com.sap.engine.interfaces.messaging.api.exception;
+
+/**
+ * Stand-in for the SAP messaging API.
+ */
+public class MessagingException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+
+	public MessagingException(String message) {
+		super(message);
+	}
+}
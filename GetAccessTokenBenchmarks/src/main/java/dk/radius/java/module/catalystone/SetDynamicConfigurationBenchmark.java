@@ -0,0 +1,84 @@
+package dk.radius.java.module.catalystone;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sap.engine.interfaces.messaging.api.Message;
+
+import dk.radius.java.module.catalystone.audit.AuditLevel;
+import dk.radius.java.module.catalystone.audit.AuditSink;
+import dk.radius.java.module.catalystone.benchmark.FakeMessage;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * <i>Main.setDynamicConfiguration()</i> in isolation, at audit level <i>NORMAL</i> and <i>DEBUG</i>.
+ * In this package because <i>ProcessContext</i> is package-private, the private method is called through a
+ * <i>MethodHandle</i>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SetDynamicConfigurationBenchmark {
+	private static final MethodHandle SET_DYNAMIC_CONFIGURATION = findSetDynamicConfiguration();
+
+	private final Main bean = new Main();
+	private final DO_Authentication ac = new DO_Authentication();
+	private Message msg;
+
+
+	private static MethodHandle findSetDynamicConfiguration() {
+		try {
+			Method method = Main.class.getDeclaredMethod("setDynamicConfiguration", ProcessContext.class, String.class, String.class, String.class);
+			method.setAccessible(true);
+			return MethodHandles.lookup().unreflect(method);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Main.setDynamicConfiguration() not found", e);
+		}
+	}
+
+
+	@Setup
+	public void setUp() {
+		ac.setDynamicConfigurationPropertyName("AccessToken");
+		ac.setAdapterType("REST");
+		msg = new FakeMessage();
+	}
+
+
+	@Benchmark
+	public Message setDynamicConfiguration() throws Throwable {
+		return set(AuditLevel.NORMAL);
+	}
+
+
+	@Benchmark
+	public Message setDynamicConfigurationDebug() throws Throwable {
+		return set(AuditLevel.DEBUG);
+	}
+
+
+	private Message set(AuditLevel level) throws Throwable {
+		AuditSink auditLog = new AuditSink(null, msg.getMessageKey());
+		auditLog.setLevel(level);
+		ProcessContext ctx = new ProcessContext(msg, ac, auditLog);
+
+		SET_DYNAMIC_CONFIGURATION.invoke(bean, ctx, ac.getDynamicConfigurationPropertyName(), ac.getDynamicConfigurationPropertyNamespace(), "access-token");
+		return msg;
+	}
+}
@@ -0,0 +1,39 @@
+package dk.radius.java.module.catalystone.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so allocation rates are reported next to the scores.
+ * <p>
+ * Takes the usual JMH command line options, eg. a regular expression selecting benchmarks:
+ * <pre>
+ * java -jar target/benchmarks.jar ProcessBenchmark -p cache=cold
+ * </pre>
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+
+		if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams() || commandLine.shouldListProfilers()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		new Runner(new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
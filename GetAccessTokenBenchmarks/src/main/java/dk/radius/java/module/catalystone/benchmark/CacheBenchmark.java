@@ -0,0 +1,131 @@
+package dk.radius.java.module.catalystone.benchmark;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dk.radius.java.module.catalystone.AccessTokenException;
+import dk.radius.java.module.catalystone.cache.ConfigCache;
+import dk.radius.java.module.catalystone.cache.InFlightRequests;
+import dk.radius.java.module.catalystone.cache.ModuleKey;
+import dk.radius.java.module.catalystone.cache.TokenCache;
+import dk.radius.java.module.catalystone.cache.TokenKey;
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Cache lookups made for every message, single threaded and with all threads reading the same entry,
+ * which is the case for a busy channel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+	private static final String CHANNEL_ID = "channel";
+
+	private final TokenKey key = new TokenKey("https://auth.example.com/token", "client", "client_credentials", "1");
+
+
+	@Setup
+	public void setUp() {
+		DO_AccessToken at = new DO_AccessToken();
+		at.accessToken = "access-token";
+		at.expiresIn = "3600";
+		TokenCache.getInstance().put(key, at, 0);
+
+		DO_Authentication ac = new DO_Authentication();
+		ac.setAuthenticationUrl(key.getAuthenticationUrl());
+		ac.setConfigCacheTtl("3600");
+		ConfigCache.getInstance().put(moduleKey(), ac);
+	}
+
+
+	@TearDown
+	public void tearDown() {
+		TokenCache.getInstance().invalidate(key);
+		ConfigCache.getInstance().invalidate(CHANNEL_ID);
+	}
+
+
+	@Benchmark
+	public DO_AccessToken tokenCacheHit() {
+		return TokenCache.getInstance().get(key, 60);
+	}
+
+
+	@Benchmark
+	@Threads(4)
+	public DO_AccessToken tokenCacheHitConcurrently() {
+		return TokenCache.getInstance().get(key, 60);
+	}
+
+
+	@Benchmark
+	public DO_Authentication configCacheHit() {
+		return ConfigCache.getInstance().get(moduleKey());
+	}
+
+
+	@Benchmark
+	@Threads(4)
+	public DO_Authentication configCacheHitConcurrently() {
+		return ConfigCache.getInstance().get(moduleKey());
+	}
+
+
+	/**
+	 * Key created per message, as <i>Main</i> does from the module parameters.
+	 */
+	private ModuleKey moduleKey() {
+		return new ModuleKey(CHANNEL_ID, key.getAuthenticationUrl(), key.getClientId(), "AccessToken");
+	}
+
+
+	/**
+	 * Overhead of routing a token request through <i>InFlightRequests</i>, each thread with its own key.
+	 */
+	@Benchmark
+	@Threads(4)
+	public DO_AccessToken inFlightRequest(Requester requester) throws AccessTokenException {
+		return InFlightRequests.getInstance().request(requester.key, requester.request, 30);
+	}
+
+
+	@State(Scope.Thread)
+	public static class Requester {
+		private static final AtomicInteger THREADS = new AtomicInteger();
+
+		TokenKey key;
+		Callable<DO_AccessToken> request;
+
+		@Setup
+		public void setUp() {
+			key = new TokenKey("https://auth.example.com/token", "client-" + THREADS.incrementAndGet(), "client_credentials", "1");
+
+			final DO_AccessToken at = new DO_AccessToken();
+			at.accessToken = "access-token";
+			request = new Callable<DO_AccessToken>() {
+				@Override
+				public DO_AccessToken call() {
+					return at;
+				}
+			};
+		}
+	}
+}
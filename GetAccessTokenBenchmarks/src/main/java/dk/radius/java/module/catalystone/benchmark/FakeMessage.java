@@ -0,0 +1,37 @@
+package dk.radius.java.module.catalystone.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sap.engine.interfaces.messaging.api.Message;
+import com.sap.engine.interfaces.messaging.api.MessageKey;
+import com.sap.engine.interfaces.messaging.api.MessagePropertyKey;
+
+/**
+ * In-memory <i>Message</i>, only carrying the dynamic configuration properties the module reads and writes.
+ */
+public final class FakeMessage implements Message {
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	private final MessageKey messageKey = new MessageKey("message-" + SEQUENCE.incrementAndGet());
+	private final Map<MessagePropertyKey, String> properties = new HashMap<MessagePropertyKey, String>(4);
+
+
+	@Override
+	public MessageKey getMessageKey() {
+		return messageKey;
+	}
+
+
+	@Override
+	public String getMessageProperty(MessagePropertyKey key) {
+		return properties.get(key);
+	}
+
+
+	@Override
+	public void setMessageProperty(MessagePropertyKey key, String value) {
+		properties.put(key, value);
+	}
+}
@@ -0,0 +1,66 @@
+package dk.radius.java.module.catalystone.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sap.aii.af.lib.mp.module.ModuleContext;
+
+/**
+ * In-memory <i>ModuleContext</i> holding the module parameters of one communication channel.
+ */
+public final class FakeModuleContext implements ModuleContext {
+	private final String channelId;
+	private final Map<String, String> contextData = new HashMap<String, String>();
+
+
+	public FakeModuleContext(String channelId) {
+		this.channelId = channelId;
+	}
+
+
+	/**
+	 * Create a context with the mandatory module parameters of <i>GetAccessTokenBean</i>.
+	 * @param channelId <i>String</i> id of the communication channel
+	 * @param authenticationUrl <i>String</i> url of the token endpoint
+	 * @param clientId <i>String</i> client id, a channel per client id gets its own cached token
+	 * @return <i>FakeModuleContext</i> context, further parameters can be set with <i>set()</i>
+	 */
+	public static FakeModuleContext forEndpoint(String channelId, String authenticationUrl, String clientId) {
+		return new FakeModuleContext(channelId)
+				.set("authenticationUrl", authenticationUrl)
+				.set("clientId", clientId)
+				.set("pwd.clientSecret", "secret")
+				.set("grantType", "client_credentials")
+				.set("apiVersion", "1")
+				.set("accessTokenHeaderName", "AccessToken")
+				.set("adapterType", "REST");
+	}
+
+
+	/**
+	 * Set a module parameter.
+	 * @param name <i>String</i> parameter name, as in the module configuration of the channel
+	 * @param value <i>String</i> parameter value, null removes the parameter
+	 * @return <i>FakeModuleContext</i> this context
+	 */
+	public FakeModuleContext set(String name, String value) {
+		if (value == null) {
+			contextData.remove(name);
+		} else {
+			contextData.put(name, value);
+		}
+		return this;
+	}
+
+
+	@Override
+	public String getChannelID() {
+		return channelId;
+	}
+
+
+	@Override
+	public String getContextData(String name) {
+		return contextData.get(name);
+	}
+}
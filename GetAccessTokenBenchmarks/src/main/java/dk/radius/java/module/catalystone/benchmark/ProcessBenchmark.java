@@ -0,0 +1,120 @@
+package dk.radius.java.module.catalystone.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sap.aii.af.lib.mp.module.ModuleData;
+import com.sap.aii.af.lib.mp.module.ModuleException;
+
+import dk.radius.java.module.catalystone.Main;
+import dk.radius.java.module.catalystone.cache.ConfigCache;
+import dk.radius.java.module.catalystone.cache.TokenCache;
+import dk.radius.java.module.catalystone.cache.TokenKey;
+import dk.radius.java.module.catalystone.loadtest.AuthServerSimulator;
+
+/**
+ * <i>Main.process()</i> end to end, against an <i>AuthServerSimulator</i> answering without delay.
+ * <p>
+ * With a warm cache the module parameters and the token are cached, which is the path taken by nearly every message.
+ * With a cold cache both are removed before every invocation, so the parameters are extracted and validated and a
+ * token is requested from the endpoint.
+ * <p>
+ * Each benchmark thread uses its own channel and client id, so threads do not share cache entries. Contention on a
+ * single cached token is measured by <i>CacheBenchmark</i>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Endpoint {
+		AuthServerSimulator simulator;
+
+		@Setup(Level.Trial)
+		public void start() throws IOException {
+			simulator = new AuthServerSimulator();
+		}
+
+		@TearDown(Level.Trial)
+		public void stop() {
+			simulator.stop();
+		}
+	}
+
+
+	@State(Scope.Thread)
+	public static class Channel {
+		private static final AtomicInteger THREADS = new AtomicInteger();
+
+		@Param({"warm", "cold"})
+		String cache;
+
+		Main bean;
+		FakeModuleContext moduleContext;
+		TokenKey key;
+
+		@Setup(Level.Trial)
+		public void setUp(Endpoint endpoint) {
+			int thread = THREADS.incrementAndGet();
+			String clientId = "client-" + thread;
+
+			bean = new Main();
+			bean.initializeResources();
+			moduleContext = FakeModuleContext.forEndpoint("channel-" + thread, endpoint.simulator.getUrl(), clientId);
+			key = new TokenKey(endpoint.simulator.getUrl(), clientId, "client_credentials", "1");
+			endpoint.simulator.registerClient(clientId, moduleContext.getContextData("pwd.clientSecret"));
+		}
+
+		@Setup(Level.Invocation)
+		public void clearCache() {
+			if (cache.equals("cold")) {
+				ConfigCache.getInstance().invalidate(moduleContext.getChannelID());
+				TokenCache.getInstance().invalidate(key);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			bean.releaseResources();
+		}
+	}
+
+
+	@Benchmark
+	public ModuleData process(Channel channel) throws ModuleException {
+		return channel.bean.process(channel.moduleContext, newModuleData());
+	}
+
+
+	@Benchmark
+	@Threads(4)
+	public ModuleData processConcurrently(Channel channel) throws ModuleException {
+		return channel.bean.process(channel.moduleContext, newModuleData());
+	}
+
+
+	private static ModuleData newModuleData() {
+		ModuleData moduleData = new ModuleData();
+		moduleData.setPrincipalData(new FakeMessage());
+		return moduleData;
+	}
+}
@@ -0,0 +1,87 @@
+package dk.radius.java.module.catalystone.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+import dk.radius.java.module.catalystone.pojo.ValidationException;
+
+/**
+ * <i>DO_Authentication.validate()</i> and <i>hasSameParameters()</i>, run when the module parameters of a channel are
+ * not cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidateBenchmark {
+	private DO_Authentication valid;
+	private DO_Authentication validCopy;
+	private DO_Authentication invalid;
+
+
+	@Setup
+	public void setUp() {
+		valid = newConfig();
+		validCopy = newConfig();
+
+		invalid = newConfig();
+		invalid.setAuthenticationUrl("not a url");
+		invalid.setClientSecret("");
+		invalid.setReadTimeout("30s");
+	}
+
+
+	private static DO_Authentication newConfig() {
+		DO_Authentication ac = new DO_Authentication();
+		ac.setAuthenticationUrl("https://auth.example.com/token");
+		ac.setClientId("client");
+		ac.setClientSecret("secret");
+		ac.setGrantType("client_credentials");
+		ac.setApiVersion("1");
+		ac.setDynamicConfigurationPropertyName("AccessToken");
+		ac.setAdapterType("REST");
+		ac.setTokenExpiryMargin("60");
+		ac.setConnectTimeout("10000");
+		ac.setReadTimeout("30000");
+		ac.setTokenRequestRetries("2");
+		ac.setAdaptiveTimeoutFactor("1.5");
+		return ac;
+	}
+
+
+	@Benchmark
+	public DO_Authentication validate() throws ValidationException {
+		valid.validate();
+		return valid;
+	}
+
+
+	@Benchmark
+	public String validateInvalid() {
+		try {
+			invalid.validate();
+			throw new IllegalStateException("Parameters expected to be invalid");
+		} catch (ValidationException e) {
+			return e.getMessage();
+		}
+	}
+
+
+	@Benchmark
+	public boolean hasSameParameters() {
+		return valid.hasSameParameters(validCopy);
+	}
+}
@@ -0,0 +1,52 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+import dk.radius.java.module.catalystone.pojo.DO_AccessTokenError;
+
+/**
+ * Parsing of authentication server responses by <i>TokenResponseParser</i>.
+ * In this package because the parser is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenResponseParserBenchmark {
+	// Signed JWT of typical size, with fields the parser skips
+	private final byte[] accessTokenResponse = ("{\"access_token\":\"eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9."
+			+ "eyJzdWIiOiJjbGllbnQiLCJhdWQiOiJjYXRhbHlzdG9uZSIsImlzcyI6Imh0dHBzOi8vYXV0aC5leGFtcGxlLmNvbSIsImV4cCI6NDEwMjQ0NDgwMCwiaWF0IjoxNzAwMDAwMDAwfQ."
+			+ "c2lnbmF0dXJlLXNpZ25hdHVyZS1zaWduYXR1cmUtc2lnbmF0dXJlLXNpZ25hdHVyZS1zaWduYXR1cmUtc2lnbmF0dXJlLXNpZ25hdHVyZQ\","
+			+ "\"token_type\":\"Bearer\",\"expires_in\":3600,\"refresh_token\":\"8xLOxBtZp8\",\"refresh_token_expires_in\":86400,"
+			+ "\"scope\":[\"read\",\"write\"],\"issued\":{\"at\":1700000000,\"by\":\"auth\"}}").getBytes(StandardCharsets.UTF_8);
+
+	private final byte[] errorResponse = "{\"message\":\"Invalid client credentials\",\"code\":401}".getBytes(StandardCharsets.UTF_8);
+
+
+	@Benchmark
+	public DO_AccessToken parseAccessToken() throws IOException {
+		return TokenResponseParser.parseAccessToken(new ByteArrayInputStream(accessTokenResponse));
+	}
+
+
+	@Benchmark
+	public DO_AccessTokenError parseAccessTokenError() throws IOException {
+		return TokenResponseParser.parseAccessTokenError(new ByteArrayInputStream(errorResponse));
+	}
+}
@@ -0,0 +1,302 @@
+package dk.radius.java.module.catalystone.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stand-in for the CatalystOne token endpoint on the loopback interface.
+ * <p>
+ * Checks the "client-id", "client-secret", "grant-type" and "api-version" headers sent by the module and answers with
+ * json shaped like <i>DO_AccessToken</i>, or <i>DO_AccessTokenError</i> on errors. Access tokens are unsigned JWTs
+ * with "iat" and "exp" claims, refresh tokens can be used once.
+ * <p>
+ * Latency, error rate, throttling and token lifetime can be changed while the simulator is running, eg. to simulate
+ * an outage in the middle of a load test:
+ * <ul>
+ * <li>latency is log-normal around <b>latencyMillis</b>, <b>latencySigma</b> 0 gives a fixed latency</li>
+ * <li>a share of <b>errorRate</b> requests is answered with 503</li>
+ * <li>a share of <b>throttleRate</b> requests is answered with 429 and "Retry-After: <b>retryAfterSeconds</b>"</li>
+ * <li>tokens are issued with "expires_in" <b>expiresInSeconds</b></li>
+ * </ul>
+ */
+public final class AuthServerSimulator {
+	public static final String PATH = "/token";
+	public static final String API_VERSION = "1";
+	public static final String GRANT_TYPE_CLIENT_CREDENTIALS = "client_credentials";
+	public static final String GRANT_TYPE_REFRESH_TOKEN = "refresh_token";
+
+	// Without it delayed acknowledgements hold back each response by about 40 ms
+	private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	static {
+		if (System.getProperty(NODELAY_PROPERTY) == null) {
+			System.setProperty(NODELAY_PROPERTY, "true");
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final ConcurrentMap<String, String> clients = new ConcurrentHashMap<String, String>();
+	private final Set<String> refreshTokens = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private volatile long latencyMillis = 0;
+	private volatile double latencySigma = 0;
+	private volatile double errorRate = 0;
+	private volatile double throttleRate = 0;
+	private volatile long retryAfterSeconds = 1;
+	private volatile long expiresInSeconds = 3600;
+	private volatile long refreshTokenExpiresInSeconds = 86400;
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong issuedCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong throttledCount = new AtomicLong();
+	private final AtomicLong errorCount = new AtomicLong();
+
+
+	/**
+	 * Start the simulator on a free port.
+	 * @throws IOException if the server socket can not be opened
+	 */
+	public AuthServerSimulator() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext(PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					AuthServerSimulator.this.handle(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+	}
+
+
+	/**
+	 * Stop the simulator, requests in progress are aborted.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * Accept requests with these credentials.
+	 * @param clientId <i>String</i> value of the "client-id" header
+	 * @param clientSecret <i>String</i> value of the "client-secret" header
+	 */
+	public void registerClient(String clientId, String clientSecret) {
+		clients.put(clientId, clientSecret);
+	}
+
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		try {
+			Thread.sleep(nextLatencyMillis(random));
+		} catch (InterruptedException e) {
+			// Simulator stopped
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		if (errorRate > 0 && random.nextDouble() < errorRate) {
+			errorCount.incrementAndGet();
+			sendError(exchange, 503, "Service temporarily unavailable");
+			return;
+		}
+
+		if (throttleRate > 0 && random.nextDouble() < throttleRate) {
+			throttledCount.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+			sendError(exchange, 429, "Too many requests");
+			return;
+		}
+
+		if (!exchange.getRequestMethod().equals("GET")) {
+			sendRejection(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+			return;
+		}
+
+		Headers headers = exchange.getRequestHeaders();
+		String clientId = headers.getFirst("client-id");
+		String clientSecret = headers.getFirst("client-secret");
+		String grantType = headers.getFirst("grant-type");
+		String apiVersion = headers.getFirst("api-version");
+
+		if (clientId == null || clientSecret == null || !clientSecret.equals(clients.get(clientId))) {
+			sendRejection(exchange, 401, "Invalid client credentials");
+			return;
+		}
+		if (!API_VERSION.equals(apiVersion)) {
+			sendRejection(exchange, 400, "Unsupported api version: " + apiVersion);
+			return;
+		}
+
+		if (GRANT_TYPE_REFRESH_TOKEN.equals(grantType)) {
+			// Refresh tokens are rotated, each can be used once
+			String refreshToken = headers.getFirst("refresh-token");
+			if (refreshToken == null || !refreshTokens.remove(refreshToken)) {
+				sendRejection(exchange, 401, "Invalid refresh token");
+				return;
+			}
+		} else if (!GRANT_TYPE_CLIENT_CREDENTIALS.equals(grantType)) {
+			sendRejection(exchange, 400, "Unsupported grant type: " + grantType);
+			return;
+		}
+
+		issuedCount.incrementAndGet();
+		send(exchange, 200, newAccessTokenResponse(clientId));
+	}
+
+
+	/**
+	 * Log-normal latency, median <b>latencyMillis</b>.
+	 */
+	private long nextLatencyMillis(ThreadLocalRandom random) {
+		long median = latencyMillis;
+		double sigma = latencySigma;
+
+		if (median <= 0 || sigma <= 0) {
+			return Math.max(0, median);
+		}
+
+		return Math.round(median * Math.exp(sigma * random.nextGaussian()));
+	}
+
+
+	private String newAccessTokenResponse(String clientId) {
+		long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+		long expiresIn = expiresInSeconds;
+
+		String refreshToken = UUID.randomUUID().toString();
+		refreshTokens.add(refreshToken);
+
+		return "{\"access_token\":\"" + newJwt(clientId, now, now + expiresIn) + "\","
+				+ "\"token_type\":\"Bearer\","
+				+ "\"expires_in\":" + expiresIn + ","
+				+ "\"refresh_token\":\"" + refreshToken + "\","
+				+ "\"refresh_token_expires_in\":" + refreshTokenExpiresInSeconds + "}";
+	}
+
+
+	private static String newJwt(String subject, long issuedAt, long expiresAt) {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String header = "{\"alg\":\"none\",\"typ\":\"JWT\"}";
+		String claims = "{\"sub\":\"" + subject + "\",\"iat\":" + issuedAt + ",\"exp\":" + expiresAt
+				+ ",\"jti\":\"" + UUID.randomUUID() + "\"}";
+
+		return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+				+ encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".";
+	}
+
+
+	private void sendRejection(HttpExchange exchange, int status, String message) throws IOException {
+		rejectedCount.incrementAndGet();
+		sendError(exchange, status, message);
+	}
+
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, "{\"message\":\"" + message + "\"}");
+	}
+
+
+	private static void send(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+
+	/* Getters and setters */
+	public String getUrl() {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + PATH;
+	}
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+	public double getLatencySigma() {
+		return latencySigma;
+	}
+	public void setLatencySigma(double latencySigma) {
+		this.latencySigma = latencySigma;
+	}
+	public double getErrorRate() {
+		return errorRate;
+	}
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+	public double getThrottleRate() {
+		return throttleRate;
+	}
+	public void setThrottleRate(double throttleRate) {
+		this.throttleRate = throttleRate;
+	}
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+	public void setRetryAfterSeconds(long retryAfterSeconds) {
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+	public long getExpiresInSeconds() {
+		return expiresInSeconds;
+	}
+	public void setExpiresInSeconds(long expiresInSeconds) {
+		this.expiresInSeconds = expiresInSeconds;
+	}
+	public long getRefreshTokenExpiresInSeconds() {
+		return refreshTokenExpiresInSeconds;
+	}
+	public void setRefreshTokenExpiresInSeconds(long refreshTokenExpiresInSeconds) {
+		this.refreshTokenExpiresInSeconds = refreshTokenExpiresInSeconds;
+	}
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+	public long getIssuedCount() {
+		return issuedCount.get();
+	}
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+	public long getThrottledCount() {
+		return throttledCount.get();
+	}
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+}
@@ -0,0 +1,186 @@
+package dk.radius.java.module.catalystone.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sap.aii.af.lib.mp.module.ModuleData;
+import com.sap.aii.af.lib.mp.module.ModuleException;
+
+import dk.radius.java.module.catalystone.Main;
+import dk.radius.java.module.catalystone.benchmark.FakeMessage;
+import dk.radius.java.module.catalystone.benchmark.FakeModuleContext;
+import dk.radius.java.module.catalystone.metrics.LatencyHistogram;
+
+/**
+ * Pushes messages through <i>Main.process()</i> from several threads against an <i>AuthServerSimulator</i>, and
+ * reports throughput, latency percentiles and the number of calls that reached the authentication server.
+ * <p>
+ * Settings are given as <i>name=value</i> arguments, names starting with "module." are set as module parameters of
+ * every channel:
+ * <pre>
+ * java -cp target/benchmarks.jar dk.radius.java.module.catalystone.loadtest.LoadDriver \
+ *     threads=32 channels=4 duration=60 latencyMillis=80 latencySigma=0.5 throttleRate=0.05 expiresIn=30 \
+ *     module.refreshAhead=10 module.tokenRequestRetries=3
+ * </pre>
+ */
+public final class LoadDriver {
+	private static final String MODULE_PARAMETER_PREFIX = "module.";
+	private static final String CLIENT_SECRET = "secret";
+
+	private final Map<String, String> settings;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final AtomicLong succeeded = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private volatile boolean measuring = false;
+	private volatile boolean stopped = false;
+
+
+	private LoadDriver(Map<String, String> settings) {
+		this.settings = settings;
+	}
+
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Map<String, String> settings = new HashMap<String, String>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Expected name=value, found: " + arg);
+			}
+			settings.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+
+		new LoadDriver(settings).run();
+	}
+
+
+	private void run() throws IOException, InterruptedException {
+		int threads = (int) getNumber("threads", 8);
+		int channels = (int) getNumber("channels", 1);
+		long warmupSeconds = getNumber("warmup", 5);
+		long durationSeconds = getNumber("duration", 30);
+
+		AuthServerSimulator simulator = new AuthServerSimulator();
+		simulator.setLatencyMillis(getNumber("latencyMillis", 50));
+		simulator.setLatencySigma(getDecimal("latencySigma", 0.5));
+		simulator.setErrorRate(getDecimal("errorRate", 0));
+		simulator.setThrottleRate(getDecimal("throttleRate", 0));
+		simulator.setRetryAfterSeconds(getNumber("retryAfter", 1));
+		simulator.setExpiresInSeconds(getNumber("expiresIn", 3600));
+
+		final List<FakeModuleContext> contexts = new ArrayList<FakeModuleContext>();
+		for (int i = 1; i <= channels; i++) {
+			FakeModuleContext moduleContext = FakeModuleContext.forEndpoint("channel-" + i, simulator.getUrl(), "client-" + i);
+			moduleContext.set("pwd.clientSecret", CLIENT_SECRET);
+			for (Map.Entry<String, String> setting : settings.entrySet()) {
+				if (setting.getKey().startsWith(MODULE_PARAMETER_PREFIX)) {
+					moduleContext.set(setting.getKey().substring(MODULE_PARAMETER_PREFIX.length()), setting.getValue());
+				}
+			}
+			simulator.registerClient("client-" + i, CLIENT_SECRET);
+			contexts.add(moduleContext);
+		}
+
+		final Main bean = new Main();
+		bean.initializeResources();
+
+		final CountDownLatch done = new CountDownLatch(threads);
+		try {
+			for (int i = 0; i < threads; i++) {
+				final int first = i;
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							send(bean, contexts, first);
+						} finally {
+							done.countDown();
+						}
+					}
+				}, "LoadDriver-" + i);
+				thread.setDaemon(true);
+				thread.start();
+			}
+
+			System.out.println("Warming up for " + warmupSeconds + " s, " + threads + " threads, " + channels + " channels");
+			Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+
+			long requests = simulator.getRequestCount();
+			long issued = simulator.getIssuedCount();
+			long rejected = simulator.getRejectedCount();
+			long throttled = simulator.getThrottledCount();
+			long errors = simulator.getErrorCount();
+			long start = System.nanoTime();
+			measuring = true;
+
+			System.out.println("Measuring for " + durationSeconds + " s");
+			Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+
+			measuring = false;
+			double seconds = (System.nanoTime() - start) / 1e9;
+			stopped = true;
+			done.await();
+
+			System.out.println();
+			System.out.println(String.format("Messages:    %d succeeded, %d failed, %.1f messages/s",
+					succeeded.get(), failed.get(), (succeeded.get() + failed.get()) / seconds));
+			System.out.println(String.format("Latency:     p50 %d us, p90 %d us, p99 %d us, p99.9 %d us, max %d us",
+					latencies.percentileMicros(0.5), latencies.percentileMicros(0.9), latencies.percentileMicros(0.99),
+					latencies.percentileMicros(0.999), latencies.percentileMicros(1.0)));
+			System.out.println(String.format("Auth server: %d calls, %d tokens issued, %d rejected, %d throttled, %d errors",
+					simulator.getRequestCount() - requests, simulator.getIssuedCount() - issued, simulator.getRejectedCount() - rejected,
+					simulator.getThrottledCount() - throttled, simulator.getErrorCount() - errors));
+
+		} finally {
+			stopped = true;
+			bean.releaseResources();
+			simulator.stop();
+		}
+	}
+
+
+	/**
+	 * Send messages until stopped, each thread starting at another channel so all channels are used.
+	 */
+	private void send(Main bean, List<FakeModuleContext> contexts, int first) {
+		for (int i = first; !stopped; i++) {
+			ModuleData moduleData = new ModuleData();
+			moduleData.setPrincipalData(new FakeMessage());
+
+			long start = System.nanoTime();
+			boolean success;
+			try {
+				bean.process(contexts.get(i % contexts.size()), moduleData);
+				success = true;
+			} catch (ModuleException e) {
+				success = false;
+			} catch (RuntimeException e) {
+				// Failed messages are reported by the module as RuntimeException
+				success = false;
+			}
+
+			if (measuring) {
+				latencies.record(System.nanoTime() - start);
+				(success ? succeeded : failed).incrementAndGet();
+			}
+		}
+	}
+
+
+	private long getNumber(String name, long defaultValue) {
+		String value = settings.get(name);
+		return value != null ? Long.parseLong(value.trim()) : defaultValue;
+	}
+
+
+	private double getDecimal(String name, double defaultValue) {
+		String value = settings.get(name);
+		return value != null ? Double.parseDouble(value.trim()) : defaultValue;
+	}
+}
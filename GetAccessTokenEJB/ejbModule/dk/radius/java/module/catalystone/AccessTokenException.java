@@ -3,7 +3,59 @@ package dk.radius.java.module.catalystone;
 public class AccessTokenException extends Exception {
 	private static final long serialVersionUID = 721431621698066476L;
 
+	/** Response code used when no response was received from the authentication server */
+	public static final int NO_RESPONSE = -1;
+	/** Response code used when the request was not sent, because the authentication server is known to be unavailable or outbound requests are limited */
+	public static final int NOT_SENT = -2;
+	/** Retry delay used when the authentication server did not send a "Retry-After" header */
+	public static final long NO_RETRY_AFTER = -1;
+
+	private final int responseCode;
+	private final long retryAfterMillis;
+
 	public AccessTokenException(String message) {
+		this(message, NO_RESPONSE);
+	}
+
+	public AccessTokenException(String message, int responseCode) {
+		this(message, responseCode, NO_RETRY_AFTER);
+	}
+
+	public AccessTokenException(String message, int responseCode, long retryAfterMillis) {
 		super(message);
+		this.responseCode = responseCode;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * @return <i>int</i> http response code of the authentication server, or <b>NO_RESPONSE</b>
+	 */
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	/**
+	 * Check if the error indicates that the authentication server is unavailable or overloaded,
+	 * as opposed to rejecting the request.
+	 * @return boolean true if no response was received, or response code is 429 or 5xx
+	 */
+	public boolean isServerUnavailable() {
+		return responseCode == NOT_SENT || responseCode == NO_RESPONSE || responseCode == 429 || responseCode >= 500;
+	}
+
+	/**
+	 * Check if the request may succeed when sent again, ie. the request timed out or the server is overloaded.
+	 * Rejected requests (eg. 400, 401) and requests not sent at all are not retryable.
+	 * @return boolean true if no response was received, or response code is 429 or 5xx
+	 */
+	public boolean isRetryable() {
+		return responseCode != NOT_SENT && isServerUnavailable();
+	}
+
+	/**
+	 * @return <i>long</i> delay in milliseconds requested by the "Retry-After" header, or <b>NO_RETRY_AFTER</b>
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
 	}
 }
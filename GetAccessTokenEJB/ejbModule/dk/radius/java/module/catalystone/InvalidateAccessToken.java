@@ -0,0 +1,159 @@
+package dk.radius.java.module.catalystone;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Local;
+import javax.ejb.LocalHome;
+import javax.ejb.Remote;
+import javax.ejb.RemoteHome;
+import javax.ejb.Stateless;
+
+import com.sap.aii.af.lib.mp.module.Module;
+import com.sap.aii.af.lib.mp.module.ModuleContext;
+import com.sap.aii.af.lib.mp.module.ModuleData;
+import com.sap.aii.af.lib.mp.module.ModuleException;
+import com.sap.aii.af.lib.mp.module.ModuleHome;
+import com.sap.aii.af.lib.mp.module.ModuleLocal;
+import com.sap.aii.af.lib.mp.module.ModuleLocalHome;
+import com.sap.aii.af.lib.mp.module.ModuleRemote;
+import com.sap.engine.interfaces.messaging.api.Message;
+import com.sap.engine.interfaces.messaging.api.MessagePropertyKey;
+import com.sap.engine.interfaces.messaging.api.PublicAPIAccessFactory;
+import com.sap.engine.interfaces.messaging.api.auditlog.AuditAccess;
+import com.sap.engine.interfaces.messaging.api.exception.MessagingException;
+
+import dk.radius.java.module.catalystone.audit.AuditSink;
+import dk.radius.java.module.catalystone.cache.CachedToken;
+import dk.radius.java.module.catalystone.cache.ConfigCache;
+import dk.radius.java.module.catalystone.cache.TokenCache;
+import dk.radius.java.module.catalystone.cache.TokenKey;
+import dk.radius.java.module.catalystone.cache.TokenStore;
+import dk.radius.java.module.catalystone.cache.TokenStores;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Session Bean implementation class InvalidateAccessToken
+ * <p>
+ * Placed after the adapter in the module chain of a synchronous receiver channel also using <i>GetAccessTokenBean</i>.
+ * If the receiver rejected the request with http status 401, the "AccessToken" cached for the channel is removed,
+ * so the next message requests a new one instead of failing until the token expires.
+ * <p>
+ * The http status is read from the dynamic configuration property "statusCodeName", in namespace
+ * "statusCodeNamespace" (default: namespace of the "AccessToken" header). The receiver adapter must be set up to
+ * write the status there and to return error responses as messages.
+ * <p>
+ * If the channel has more than one <i>GetAccessTokenBean</i>, "accessTokenHeaderName" selects the one whose token is
+ * removed, by default it is the one whose parameters were validated most recently.
+ */
+@Stateless(name="InvalidateAccessTokenBean")
+@Local(value={ModuleLocal.class})
+@Remote(value={ModuleRemote.class})
+@LocalHome(value=ModuleLocalHome.class)
+@RemoteHome(value=ModuleHome.class)
+public class InvalidateAccessToken implements Module {
+
+	private static final String STATUS_UNAUTHORIZED = "401";
+	private static final long DEFAULT_MIN_TOKEN_AGE_SECONDS = 10;
+
+	private AuditAccess audit;
+
+
+	@PostConstruct
+	public void initializeResources() {
+		try {
+			audit = PublicAPIAccessFactory.getPublicAPIAccess().getAuditAccess();
+		} catch (MessagingException e) {
+			throw new RuntimeException("Error in method 'initializeResources': " + e.getMessage());
+		}
+	}
+
+
+	@Override
+	public ModuleData process(ModuleContext moduleContext, ModuleData inputModuleData) throws ModuleException {
+
+		Message msg = (Message) inputModuleData.getPrincipalData();
+		AuditSink auditLog = new AuditSink(audit, msg.getMessageKey());
+
+		try {
+			String channelId = moduleContext.getChannelID();
+			String statusCodeName = moduleContext.getContextData("statusCodeName");
+
+			if (statusCodeName == null || statusCodeName.equals("")) {
+				String errorMessage = "ModuleParameter \"statusCodeName\" must have a value!";
+				auditLog.error(errorMessage);
+				throw new RuntimeException(errorMessage);
+			}
+
+			// Parameters of GetAccessToken in the same channel, cached when the request passed it
+			DO_Authentication ac = ConfigCache.getInstance().getLatest(channelId, getOptionalParameter(moduleContext, "accessTokenHeaderName"));
+			if (ac == null) {
+				return inputModuleData;
+			}
+			auditLog.setLevel(ac.getEffectiveAuditLevel());
+
+			String statusCodeNamespace = moduleContext.getContextData("statusCodeNamespace");
+			if (statusCodeNamespace == null || statusCodeNamespace.equals("")) {
+				statusCodeNamespace = ac.getDynamicConfigurationPropertyNamespace();
+			}
+
+			String statusCode = msg.getMessageProperty(new MessagePropertyKey(statusCodeName, statusCodeNamespace));
+			auditLog.debug("Receiver http status: ", statusCode);
+
+			if (statusCode != null && statusCode.trim().equals(STATUS_UNAUTHORIZED)) {
+				invalidate(ac, getMinTokenAgeSeconds(moduleContext.getContextData("minTokenAge")), auditLog);
+			}
+
+		} finally {
+			auditLog.flush();
+		}
+
+		return inputModuleData;
+	}
+
+
+	/**
+	 * Remove "AccessToken" from token cache and shared token store. A token cached less than <b>minTokenAgeSeconds</b>
+	 * ago is kept, it has likely replaced the rejected token already while the request was in progress.
+	 * @param ac <i>DO_Authentication</i> validated module parameters of GetAccessToken
+	 * @param minTokenAgeSeconds <i>long</i> minimum age of a token to be removed
+	 * @param auditLog <i>AuditSink</i> of message being processed
+	 */
+	private void invalidate(DO_Authentication ac, long minTokenAgeSeconds, AuditSink auditLog) {
+		TokenKey key = TokenKey.of(ac);
+		CachedToken removed = TokenCache.getInstance().invalidate(key, System.currentTimeMillis() - minTokenAgeSeconds * 1000L);
+
+		if (removed == null) {
+			auditLog.debug("AccessToken rejected by receiver, no token old enough to remove for: ", key);
+			return;
+		}
+
+		// Remove from shared store as well, unless another node has published a new token meanwhile
+		TokenStore store = TokenStores.forConfig(ac);
+		if (TokenStores.isShared(store)) {
+			CachedToken published = store.load(key);
+			if (published != null && removed.getAccessToken().accessToken.equals(published.getAccessToken().accessToken)) {
+				store.remove(key);
+			}
+		}
+
+		auditLog.info("AccessToken rejected by receiver with http status 401, removed from cache for: ", key);
+	}
+
+
+	private String getOptionalParameter(ModuleContext moduleContext, String name) {
+		String value = moduleContext.getContextData(name);
+		return value == null || value.equals("") ? null : value;
+	}
+
+
+	private long getMinTokenAgeSeconds(String minTokenAge) {
+		if (minTokenAge == null || minTokenAge.trim().equals("")) {
+			return DEFAULT_MIN_TOKEN_AGE_SECONDS;
+		}
+
+		try {
+			return Math.max(0, Long.parseLong(minTokenAge.trim()));
+		} catch (NumberFormatException e) {
+			return DEFAULT_MIN_TOKEN_AGE_SECONDS;
+		}
+	}
+}
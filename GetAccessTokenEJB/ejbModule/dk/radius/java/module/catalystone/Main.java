@@ -1,22 +1,15 @@
 package dk.radius.java.module.catalystone;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ejb.Local;
 import javax.ejb.LocalHome;
 import javax.ejb.Remote;
 import javax.ejb.RemoteHome;
 import javax.ejb.Stateless;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import com.sap.aii.af.lib.mp.module.Module;
 import com.sap.aii.af.lib.mp.module.ModuleContext;
 import com.sap.aii.af.lib.mp.module.ModuleData;
@@ -26,16 +19,29 @@ import com.sap.aii.af.lib.mp.module.ModuleLocal;
 import com.sap.aii.af.lib.mp.module.ModuleLocalHome;
 import com.sap.aii.af.lib.mp.module.ModuleRemote;
 import com.sap.engine.interfaces.messaging.api.Message;
-import com.sap.engine.interfaces.messaging.api.MessageKey;
 import com.sap.engine.interfaces.messaging.api.MessagePropertyKey;
 import com.sap.engine.interfaces.messaging.api.PublicAPIAccessFactory;
 import com.sap.engine.interfaces.messaging.api.auditlog.AuditAccess;
-import com.sap.engine.interfaces.messaging.api.auditlog.AuditLogStatus;
 import com.sap.engine.interfaces.messaging.api.exception.InvalidParamException;
 import com.sap.engine.interfaces.messaging.api.exception.MessagingException;
 
+import dk.radius.java.module.catalystone.audit.AuditSink;
+import dk.radius.java.module.catalystone.cache.CachedToken;
+import dk.radius.java.module.catalystone.cache.ConfigCache;
+import dk.radius.java.module.catalystone.cache.FailureCache;
+import dk.radius.java.module.catalystone.cache.ModuleKey;
+import dk.radius.java.module.catalystone.cache.InFlightRequests;
+import dk.radius.java.module.catalystone.cache.TokenCache;
+import dk.radius.java.module.catalystone.cache.TokenKey;
+import dk.radius.java.module.catalystone.cache.TokenRefresher;
+import dk.radius.java.module.catalystone.cache.TokenStore;
+import dk.radius.java.module.catalystone.cache.TokenStores;
+import dk.radius.java.module.catalystone.client.AdaptiveTimeouts;
+import dk.radius.java.module.catalystone.client.Credentials;
+import dk.radius.java.module.catalystone.client.TokenClient;
+import dk.radius.java.module.catalystone.metrics.EndpointMetrics;
+import dk.radius.java.module.catalystone.metrics.TokenMetrics;
 import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
-import dk.radius.java.module.catalystone.pojo.DO_AccessTokenError;
 import dk.radius.java.module.catalystone.pojo.DO_Authentication;
 import dk.radius.java.module.catalystone.pojo.ValidationException;
 
@@ -49,54 +55,70 @@ import dk.radius.java.module.catalystone.pojo.ValidationException;
 @RemoteHome(value=ModuleHome.class)
 public class Main implements Module {
 
+	private static final long TOKEN_STORE_POLL_MILLIS = 200;
+
 	private AuditAccess audit;
-	private MessageKey msgKey = null;
-	private Message msg = null;
-	private DO_Authentication ac = new DO_Authentication();
-	Gson gson = new Gson();
 
 
 	@PostConstruct
 	public void initializeResources() {
 		try {
 			audit = PublicAPIAccessFactory.getPublicAPIAccess().getAuditAccess();
+			ModuleLifecycle.instanceCreated();
 		} catch (MessagingException e) {
 			throw new RuntimeException("Error in method 'initializeResources': " + e.getMessage());
 		}
 	}
 
 
+	@PreDestroy
+	public void releaseResources() {
+		ModuleLifecycle.instanceDestroyed();
+	}
+
+
 	@Override
 	public ModuleData process(ModuleContext moduleContext, ModuleData inputModuleData) throws ModuleException {				
 
+		long start = System.nanoTime();
+		DO_Authentication ac = null;
+
 		// Extract message input from module data
-		msg = (Message) inputModuleData.getPrincipalData();
-		msgKey = msg.getMessageKey();
+		Message msg = (Message) inputModuleData.getPrincipalData();
+		AuditSink auditLog = new AuditSink(audit, msg.getMessageKey());
 		
-		audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "**** GetAccessToken: Module start ****");
+		auditLog.info("**** GetAccessToken: Module start ****");
 		
 		try {
 			// Get module parameters
-			extractModuleParameters(moduleContext);
+			ac = getModuleParameters(moduleContext, auditLog);
+			ProcessContext ctx = new ProcessContext(msg, ac, auditLog);
 
 			// Write debug status to log
-			audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "Debug mode set to: " + ac.isDebugMode());
+			auditLog.info("Debug mode set to: ", ac.isDebugMode());
 
 			// Start processing access token
-			start(inputModuleData, msg);
+			start(inputModuleData, ctx);
 
 		} catch (AccessTokenException e) {
 			// Write error to log
-			audit.addAuditLogEntry(msgKey, AuditLogStatus.ERROR, e.getMessage());
+			auditLog.error(e.getMessage());
 			// Terminate processing
 			throw new RuntimeException(e.getMessage());
 		} catch (ValidationException e) {
+			TokenMetrics.getInstance().recordValidationFailure();
 			// Write error to log
-			audit.addAuditLogEntry(msgKey, AuditLogStatus.ERROR, e.getMessage());
+			auditLog.error(e.getMessage());
 			// Terminate processing
 			throw new RuntimeException(e.getMessage());
 		} finally {
-			audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "**** GetAccessToken: Module end ****");
+			auditLog.info("**** GetAccessToken: Module end ****");
+			// Write all entries of this message to the audit log
+			auditLog.flush();
+
+			if (ac != null) {
+				TokenMetrics.getInstance().forEndpoint(ac.getAuthenticationUrl()).recordProcess(System.nanoTime() - start);
+			}
 		}
 
 		return inputModuleData;
@@ -104,11 +126,66 @@ public class Main implements Module {
 
 	
 	/**
-	 * Extract adapter module parameters set in communication channel.
+	 * Get validated adapter module parameters, from cache if the parameters of the communication channel are unchanged.
 	 * @param moduleContext carries the context information which might be used by an XI AF module to access the current channel ID
+	 * @param auditLog <i>AuditSink</i> of message being processed
+	 * @return <i>DO_Authentication</i> validated module parameters
 	 * @throws ValidationException
 	 */
-	private void extractModuleParameters(ModuleContext moduleContext) throws ValidationException {
+	private DO_Authentication getModuleParameters(ModuleContext moduleContext, AuditSink auditLog) throws ValidationException {
+		ConfigCache configCache = ConfigCache.getInstance();
+
+		// The channel may have more than one GetAccessToken module, told apart by these parameters
+		ModuleKey moduleKey = new ModuleKey(moduleContext.getChannelID(), moduleContext.getContextData("authenticationUrl"),
+				moduleContext.getContextData("clientId"), moduleContext.getContextData("accessTokenHeaderName"));
+
+		// Use cached parameters without reading the others while within their time to live
+		DO_Authentication ac = configCache.get(moduleKey);
+
+		if (ac == null) {
+			DO_Authentication extracted = extractModuleParameters(moduleContext);
+
+			// Parameters unchanged since they were validated
+			ac = configCache.getIfUnchanged(moduleKey, extracted);
+
+			if (ac == null) {
+				auditLog.setLevel(extracted.getEffectiveAuditLevel());
+				auditLog.debug("Module paramaters extracted...");
+
+				// Fail fast if the same parameters failed validation recently
+				ValidationException failure = FailureCache.getInstance().getValidationFailure(moduleKey, extracted);
+				if (failure != null) {
+					auditLog.debug("Using cached validation failure for module: ", moduleKey);
+					throw failure;
+				}
+
+				// Validate module parameter values
+				try {
+					extracted.validate();
+				} catch (ValidationException e) {
+					FailureCache.getInstance().putValidationFailure(moduleKey, extracted, e);
+					throw e;
+				}
+
+				configCache.put(moduleKey, extracted);
+				return extracted;
+			}
+		}
+
+		auditLog.setLevel(ac.getEffectiveAuditLevel());
+		auditLog.debug("Using cached module parameters for module: ", moduleKey);
+
+		return ac;
+	}
+
+
+	/**
+	 * Extract adapter module parameters set in communication channel.
+	 * @param moduleContext carries the context information which might be used by an XI AF module to access the current channel ID
+	 * @return <i>DO_Authentication</i> module parameters, not validated
+	 */
+	private DO_Authentication extractModuleParameters(ModuleContext moduleContext) {
+		DO_Authentication ac = new DO_Authentication();
 		
 		// Extract data from context and set in pojo
 		ac.setAuthenticationUrl(moduleContext.getContextData("authenticationUrl"));
@@ -119,190 +196,296 @@ public class Main implements Module {
 		ac.setDebugMode(Boolean.parseBoolean(moduleContext.getContextData("debugEnabled")));
 		ac.setDynamicConfigurationPropertyName(moduleContext.getContextData("accessTokenHeaderName"));
 		ac.setAdapterType(moduleContext.getContextData("adapterType"));
-
-		if (ac.isDebugMode()) {
-			audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "Module paramaters extracted...");
-		}
-		// Validate module parameter values
-		ac.validate();
+		ac.setTokenExpiryMargin(moduleContext.getContextData("tokenExpiryMargin"));
+		ac.setRefreshAhead(moduleContext.getContextData("refreshAhead"));
+		ac.setTokenRequestWaitTimeout(moduleContext.getContextData("tokenRequestWaitTimeout"));
+		ac.setConnectTimeout(moduleContext.getContextData("connectTimeout"));
+		ac.setReadTimeout(moduleContext.getContextData("readTimeout"));
+		ac.setAuditLevel(moduleContext.getContextData("auditLevel"));
+		ac.setConfigCacheTtl(moduleContext.getContextData("configCacheTtl"));
+		ac.setCircuitBreakerThreshold(moduleContext.getContextData("circuitBreakerThreshold"));
+		ac.setCircuitBreakerOpenTime(moduleContext.getContextData("circuitBreakerOpenTime"));
+		ac.setStaleTokenGrace(Boolean.parseBoolean(moduleContext.getContextData("staleTokenGrace")));
+		ac.setTokenStore(moduleContext.getContextData("tokenStore"));
+		ac.setTokenStoreDirectory(moduleContext.getContextData("tokenStoreDirectory"));
+		ac.setHedgePercentile(moduleContext.getContextData("hedgePercentile"));
+		ac.setHedgeMaxInFlight(moduleContext.getContextData("hedgeMaxInFlight"));
+		ac.setTokenRequestRetries(moduleContext.getContextData("tokenRequestRetries"));
+		ac.setTokenRequestRetryBackoff(moduleContext.getContextData("tokenRequestRetryBackoff"));
+		ac.setTokenRequestRetryBudget(moduleContext.getContextData("tokenRequestRetryBudget"));
+		ac.setMaxConcurrentRequests(moduleContext.getContextData("maxConcurrentRequests"));
+		ac.setRateLimit(moduleContext.getContextData("rateLimit"));
+		ac.setRateLimitBurst(moduleContext.getContextData("rateLimitBurst"));
+		ac.setAdmissionWaitTimeout(moduleContext.getContextData("admissionWaitTimeout"));
+		ac.setClockSkew(moduleContext.getContextData("clockSkew"));
+		ac.setAdaptiveTimeoutFactor(moduleContext.getContextData("adaptiveTimeoutFactor"));
+		ac.setAdaptiveTimeoutMin(moduleContext.getContextData("adaptiveTimeoutMin"));
+		ac.setFailureCacheTtl(moduleContext.getContextData("failureCacheTtl"));
+
+		return ac;
 	}
 
 
 	/**
 	 * Start the process of getting "AccessToken" from authentication server set in adapter module.
 	 * @param inputModuleData is the container which carries the module input data and module output data
-	 * @param msg A <i>Message</i> is what an application sends or receives when interacting with the Messaging System
+	 * @param ctx <i>ProcessContext</i> of message being processed
 	 * @throws AccessTokenException
 	 */
-	private void start(ModuleData inputModuleData, Message msg) throws AccessTokenException {		
+	private void start(ModuleData inputModuleData, ProcessContext ctx) throws AccessTokenException {		
+		DO_Authentication ac = ctx.getConfig();
+		
 		// Get access token
-		getAccessToken();
+		ctx = ctx.withAccessToken(getAccessToken(ctx));
 
 		// Set access token in header
-		setDynamicConfiguration(msg, ac.getDynamicConfigurationPropertyName(), ac.getDynamicConfigurationPropertyNamespace(), ac.getAccessTokenObject().accessToken);
+		setDynamicConfiguration(ctx, ac.getDynamicConfigurationPropertyName(), ac.getDynamicConfigurationPropertyNamespace(), ctx.getAccessToken().accessToken);
 
 		// Set message data with new headers
-		inputModuleData.setPrincipalData(msg);
+		inputModuleData.setPrincipalData(ctx.getMessage());
 	}
 
 	
 	/**
-	 * Get "AccessToken" from authentication server set in adapter module.
+	 * Get "AccessToken" from token cache or, if no valid token is cached, from authentication server set in adapter module.
+	 * @param ctx <i>ProcessContext</i> of message being processed
+	 * @return <i>DO_AccessToken</i> "AccessToken" object
 	 * @throws AccessTokenException
 	 */
-	private void getAccessToken() throws AccessTokenException {
+	private DO_AccessToken getAccessToken(final ProcessContext ctx) throws AccessTokenException {
+		final Credentials credentials = Credentials.of(ctx.getConfig());
 
-		// Create connection to authentication server
-		HttpURLConnection con = createAccessTokenConnection();
+		// Reuse cached token if it is not about to expire
+		DO_AccessToken at = getCachedAccessToken(ctx, credentials.getKey());
 
-		// Get data from response
-		extractAccessTokenFromAuthResponse(con);
-	}
-
-
-	/**
-	 * Create an <i>HttpURLConnection</i> using data set in adapter module
-	 * @return HttpURLConnection
-	 * @throws AccessTokenException
-	 */
-	private HttpURLConnection createAccessTokenConnection() throws AccessTokenException {
-		HttpURLConnection con = null;
-		try {
-			URL url = new URL(ac.getAuthenticationUrl());
-			con = (HttpURLConnection) url.openConnection();
-			con.setRequestMethod("GET");
-
-			createRequestHeaders(con);
+		EndpointMetrics metrics = TokenMetrics.getInstance().forEndpoint(credentials.getAuthenticationUrl());
+		if (at != null) {
+			metrics.recordCacheHit();
+		} else {
+			metrics.recordCacheMiss();
+		}
 
-			if (ac.isDebugMode()) {
-				audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "Requesting AccessToken from url: " + ac.getAuthenticationUrl());
+		if (at == null) {
+			// Fail fast if the authentication server rejected the same credentials recently
+			AccessTokenException failure = FailureCache.getInstance().getAuthFailure(credentials.getKey(), ctx.getConfig());
+			if (failure != null) {
+				ctx.getAudit().debug("Using cached AccessToken request failure for: ", credentials.getKey());
+				throw failure;
 			}
 
-		} catch (IOException e) {
-			String errorMessage = "Error creating Http connection to authentication server with url: " + ac.getAuthenticationUrl();
-			throw new AccessTokenException(errorMessage);
+			try {
+				// Only one request per credentials is sent, concurrent messages wait for its result
+				at = InFlightRequests.getInstance().request(credentials.getKey(), new Callable<DO_AccessToken>() {
+					@Override
+					public DO_AccessToken call() throws AccessTokenException {
+						return requestAccessToken(ctx, credentials);
+					}
+				}, ctx.getConfig().getTokenRequestWaitTimeoutSeconds());
+			} catch (AccessTokenException e) {
+				FailureCache.getInstance().putAuthFailure(credentials.getKey(), ctx.getConfig(), e);
+				at = getStaleAccessToken(ctx, credentials.getKey(), e);
+			}
 		}
 
-		return con;
+		return at;
 	}
 
 
 	/**
-	 * Create request headers based on values set in adapter module
-	 * @param con <i>HttpURLConnection</i> to authentication server
+	 * Get a cached "AccessToken" that is within its expiry margin but not yet expired, if the authentication server
+	 * is unavailable and "staleTokenGrace" is set in adapter module.
+	 * @param ctx <i>ProcessContext</i> of message being processed
+	 * @param key <i>TokenKey</i> credentials set in adapter module
+	 * @param e <i>AccessTokenException</i> error requesting a new token
+	 * @return <i>DO_AccessToken</i> cached token
+	 * @throws AccessTokenException <b>e</b> if no cached token can be used
 	 */
-	private void createRequestHeaders(HttpURLConnection con) {
+	private DO_AccessToken getStaleAccessToken(ProcessContext ctx, TokenKey key, AccessTokenException e) throws AccessTokenException {
+		if (!ctx.getConfig().isStaleTokenGrace() || !e.isServerUnavailable()) {
+			throw e;
+		}
 
-		if (ac.isDebugMode()) {
-			audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "Creating request headers based on module parameters..." );
+		DO_AccessToken stale = TokenCache.getInstance().getUnexpired(key);
+		if (stale == null) {
+			throw e;
 		}
 
-		con.setRequestProperty("client-id", ac.getClientId());
-		con.setRequestProperty("client-secret", ac.getClientSecret());
-		con.setRequestProperty("grant-type", ac.getGrantType());
-		con.setRequestProperty("api-version", ac.getApiVersion());
+		ctx.getAudit().info("Authentication server unavailable, using cached AccessToken until it expires. Error was: ", e.getMessage());
+		return stale;
 	}
 
 
 	/**
-	 * Extracts "AccessToken" from authentication server response and sets if for later use.
-	 * @param con <i>HttpURLConnection</i> to authentication server
-	 * @throws AccessTokenException
+	 * Get "AccessToken" from token cache.
+	 * @param ctx <i>ProcessContext</i> of message being processed
+	 * @param key <i>TokenKey</i> credentials set in adapter module
+	 * @return <i>DO_AccessToken</i> or null if no valid token is cached
 	 */
-	private void extractAccessTokenFromAuthResponse(HttpURLConnection con) throws AccessTokenException {
-		// Get response string
-		String response = convertConnectionResponseToString(con);
+	private DO_AccessToken getCachedAccessToken(ProcessContext ctx, TokenKey key) {
+		DO_AccessToken cached = TokenCache.getInstance().get(key, ctx.getConfig().getTokenExpiryMarginSeconds());
 
-		// Get access token data from response (json)
-		DO_AccessToken at = getAccessTokenDataFromResponse(response);
+		if (cached != null) {
+			ctx.getAudit().debug("Using cached AccessToken for: ", key);
+		}
 
-		// Set access token data
-		ac.setAccessTokenObject(at);
+		return cached;
 	}
 
 
 	/**
-	 * Convert response from authentication server using <i>gson api</i>
-	 * @param response <i>String</i> raw authentication server response.
+	 * Request "AccessToken" from authentication server and cache it for following messages.
+	 * @param ctx <i>ProcessContext</i> of message being processed
+	 * @param credentials <i>Credentials</i> set in adapter module
 	 * @return <i>DO_AccessToken</i> "AccessToken" object containing response data
-	 * @see <a href="https://sites.google.com/site/gson/gson-user-guide">gson documentation</a>
 	 * @throws AccessTokenException
 	 */
-	private DO_AccessToken getAccessTokenDataFromResponse(String response) throws AccessTokenException {
-		DO_AccessToken at = null;
+	private DO_AccessToken requestAccessToken(ProcessContext ctx, Credentials credentials) throws AccessTokenException {
+		DO_Authentication ac = ctx.getConfig();
+		AuditSink auditLog = ctx.getAudit();
+		TokenKey key = credentials.getKey();
+
+		// A request that was in progress when the cache was checked may have completed meanwhile
+		DO_AccessToken cached = getCachedAccessToken(ctx, key);
+		if (cached != null) {
+			return cached;
+		}
+
+		// Use token published by another node, otherwise take the lease to request it for all nodes
+		TokenStore store = TokenStores.forConfig(ac);
+		boolean sharedStore = TokenStores.isShared(store);
+		String leaseId = null;
+		if (sharedStore) {
+			CachedToken published = getPublishedAccessToken(ctx, store, key);
+			if (published == null) {
+				leaseId = acquireLease(ctx, store, key);
+				// Checked once more, a token may have been published while waiting or before the lease was acquired
+				published = getPublishedAccessToken(ctx, store, key);
+			}
+			if (published != null) {
+				if (leaseId != null) {
+					store.releaseLease(key, leaseId);
+				}
+				scheduleRefresh(ac, credentials, published);
+				return published.getAccessToken();
+			}
+		}
 
 		try {
-			// Get access token data from response
-			at = gson.fromJson(response, DO_AccessToken.class);
+			auditLog.debug("Requesting AccessToken from url: ", ac.getAuthenticationUrl());
+			long deadline = TokenClient.getDeadline(ac);
+			if (auditLog.isDebugEnabled()) {
+				auditLog.debug("Timeouts: ", AdaptiveTimeouts.forRequest(credentials, deadline));
+			}
 
-			if (ac.isDebugMode()) {
-				audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "AccessToken exctracted from response: " + at.accessToken);
+			// Request token from authentication server
+			DO_AccessToken at = TokenClient.getInstance().requestToken(credentials, deadline);
+
+			auditLog.debug("AccessToken exctracted from response: ", at.accessToken);
+
+			// Cache token for following messages
+			CachedToken entry = TokenCache.getInstance().put(key, at, ctx.getConfig().getClockSkewSeconds());
+			auditLog.debug("AccessToken cached: ", entry != null, " (expires_in: ", at.expiresIn, ")");
+
+			if (entry != null) {
+				// Publish token to other nodes
+				if (sharedStore) {
+					store.store(key, entry);
+				}
+				scheduleRefresh(ac, credentials, entry);
 			}
-		} catch (JsonSyntaxException e) {
-			String errorMessage = "Error parsing json response: " + response;
-			throw new AccessTokenException(errorMessage);
+
+			return at;
+		} finally {
+			// Only a lease acquired by this request, a timed out wait leaves the other node's lease in place
+			if (leaseId != null) {
+				store.releaseLease(key, leaseId);
+			}
+		}
+	}
+
+
+	/**
+	 * Get "AccessToken" published to a shared token store by another node.
+	 * @param ctx <i>ProcessContext</i> of message being processed
+	 * @param store <i>TokenStore</i> shared with other nodes
+	 * @param key <i>TokenKey</i> credentials set in adapter module
+	 * @return <i>CachedToken</i> published token, now cached locally, or null if no valid token is published
+	 */
+	private CachedToken getPublishedAccessToken(ProcessContext ctx, TokenStore store, TokenKey key) {
+		CachedToken published = store.load(key);
+
+		if (published == null || !published.isValid(System.currentTimeMillis(), ctx.getConfig().getTokenExpiryMarginSeconds() * 1000L)) {
+			return null;
 		}
 
-		// Return access token object
-		return at;
+		ctx.getAudit().debug("Using AccessToken published to token store for: ", key);
+		return TokenCache.getInstance().put(key, published);
 	}
 
 
 	/**
-	 * Convert <i>HttpURLConnection -> InputStream</i> to <i>String</i>.
-	 * @param con <i>HttpURLConnection</i> to authentication server
-	 * @return <i>String</i> response from authentication server
-	 * @throws AccessTokenException
+	 * Acquire the lease for requesting a new token. While another node holds the lease, wait for it to publish its
+	 * token, at most "tokenRequestWaitTimeout" seconds.
+	 * @param ctx <i>ProcessContext</i> of message being processed
+	 * @param store <i>TokenStore</i> shared with other nodes
+	 * @param key <i>TokenKey</i> credentials set in adapter module
+	 * @return <i>String</i> id of the acquired lease, or null if a token was published or waiting timed out
 	 */
-	private String convertConnectionResponseToString(HttpURLConnection con) throws AccessTokenException {
-		String response = null;
-		try {
-			// Convert response to string
-			response = new BufferedReader(new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))
-					.lines()
-					.collect(Collectors.joining("\n"));
-
-			if (con.getResponseCode() != 200) {
-				// Get error data from JSON response
-				DO_AccessTokenError ate = gson.fromJson(response, DO_AccessTokenError.class);
-
-				// Throw exception
-				String errorMessage = "Error getting AccessToken with server code: " + con.getResponseCode() + " and message: " + ate.message;
-				throw new AccessTokenException(errorMessage);
+	private String acquireLease(ProcessContext ctx, TokenStore store, TokenKey key) {
+		DO_Authentication ac = ctx.getConfig();
+		long marginMillis = ac.getTokenExpiryMarginSeconds() * 1000L;
+		long waitMillis = ac.getTokenRequestWaitTimeoutSeconds() * 1000L;
+		long deadline = System.currentTimeMillis() + waitMillis;
+
+		while (true) {
+			String leaseId = store.tryAcquireLease(key, waitMillis);
+			if (leaseId != null || System.currentTimeMillis() >= deadline) {
+				return leaseId;
 			}
 
-			if (ac.isDebugMode()) {
-				audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "Authentication server returned code: " + con.getResponseCode());
+			try {
+				Thread.sleep(TOKEN_STORE_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
 			}
 
-		} catch (IOException e) {
-			String errorMessage = "Error getting response from HttpConnection inputStream: " + e.getMessage();
-			throw new AccessTokenException(errorMessage);
+			CachedToken published = store.load(key);
+			if (published != null && published.isValid(System.currentTimeMillis(), marginMillis)) {
+				return null;
+			}
 		}
+	}
+
 
-		return response;
+	/**
+	 * Renew token in the background before it expires, if "refreshAhead" is set in adapter module.
+	 * @param ac <i>DO_Authentication</i> validated module parameters
+	 * @param credentials <i>Credentials</i> set in adapter module
+	 * @param entry <i>CachedToken</i> token to renew
+	 */
+	private void scheduleRefresh(DO_Authentication ac, Credentials credentials, CachedToken entry) {
+		if (ac.isRefreshAheadEnabled()) {
+			TokenRefresher.getInstance().schedule(credentials, entry, ac.getTokenExpiryMarginSeconds(), ac.getRefreshAheadSeconds());
+		}
 	}
 
 
 	/**
 	 * Set dynamic configuration data (this can later be fetched in communication channel).
-	 * @param msg A <i>Message</i> is what an application sends or receives when interacting with the Messaging System
+	 * @param ctx <i>ProcessContext</i> of message being processed
 	 * @param propertyName <i>String</i> dynamic configuration: name to reference when reading from dynamic configuration
 	 * @param propertyNamespace <i>String</i> dynamic configuration: namespace (eg. http://sap.com/xi/XI/System/REST)
 	 * @param propertyValue <i>String</i> dynamic configuration: value returned when reading dynamic configuration using <b>propertyName</b>
 	 * @throws AccessTokenException
 	 */
-	private void setDynamicConfiguration(Message msg, String propertyName, String propertyNamespace, String propertyValue) throws AccessTokenException {
+	private void setDynamicConfiguration(ProcessContext ctx, String propertyName, String propertyNamespace, String propertyValue) throws AccessTokenException {
 
 		try {
 			MessagePropertyKey mpk = new MessagePropertyKey(propertyName, propertyNamespace);
-			msg.setMessageProperty(mpk, propertyValue);
+			ctx.getMessage().setMessageProperty(mpk, propertyValue);
 
-			if (ac.isDebugMode()) {
-				audit.addAuditLogEntry(msgKey, AuditLogStatus.SUCCESS, "Setting dynamic header: \"" + propertyName + "\": " 
-																		+ propertyValue
-																		+ "(" + propertyNamespace + ")");
-			}
+			ctx.getAudit().debug("Setting dynamic header: \"", propertyName, "\": ", propertyValue, "(", propertyNamespace, ")");
 		} catch (InvalidParamException e) {
 			String errorMessage = "Error setting \"accessTokenHeader\" in dynamic configuration: " + e.getMessage();
 			throw new AccessTokenException(errorMessage);
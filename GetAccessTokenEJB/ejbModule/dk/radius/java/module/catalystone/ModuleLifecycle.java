@@ -0,0 +1,71 @@
+package dk.radius.java.module.catalystone;
+
+import javax.management.JMException;
+
+import dk.radius.java.module.catalystone.cache.TokenPreWarmer;
+import dk.radius.java.module.catalystone.cache.TokenRefresher;
+import dk.radius.java.module.catalystone.client.TokenClient;
+import dk.radius.java.module.catalystone.metrics.TokenMetrics;
+
+/**
+ * Starts and stops the background tasks shared by all module instances of a deployment.
+ * <p>
+ * The container creates and destroys bean instances as the pool grows and shrinks, so the tasks are started with the
+ * first instance and stopped with the last one, which at the latest happens when the application is undeployed.
+ * This way threads of an old deployment do not keep running, and keep its classloader alive, after a redeploy.
+ */
+final class ModuleLifecycle {
+	private static int instances = 0;
+
+
+	private ModuleLifecycle() {
+	}
+
+
+	/**
+	 * Called from <i>@PostConstruct</i> of each bean instance.
+	 */
+	static synchronized void instanceCreated() {
+		if (instances++ == 0) {
+			registerMetrics();
+			TokenClient.getInstance().start();
+			TokenRefresher.getInstance().start();
+			TokenPreWarmer.getInstance().start();
+		}
+	}
+
+
+	/**
+	 * Called from <i>@PreDestroy</i> of each bean instance.
+	 */
+	static synchronized void instanceDestroyed() {
+		if (instances > 0 && --instances == 0) {
+			TokenPreWarmer.getInstance().stop();
+			TokenRefresher.getInstance().stop();
+			TokenClient.getInstance().stop();
+			unregisterMetrics();
+		}
+	}
+
+
+	private static void registerMetrics() {
+		try {
+			TokenMetrics.getInstance().register();
+		} catch (JMException e) {
+			// Metrics are not available over JMX, messages are processed anyway
+		} catch (RuntimeException e) {
+			// Eg. missing permission to register, messages are processed anyway
+		}
+	}
+
+
+	private static void unregisterMetrics() {
+		try {
+			TokenMetrics.getInstance().unregister();
+		} catch (JMException e) {
+			// Already removed
+		} catch (RuntimeException e) {
+			// Eg. missing permission to unregister
+		}
+	}
+}
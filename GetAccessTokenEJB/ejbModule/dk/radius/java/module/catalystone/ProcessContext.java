@@ -0,0 +1,65 @@
+package dk.radius.java.module.catalystone;
+
+import com.sap.engine.interfaces.messaging.api.Message;
+import com.sap.engine.interfaces.messaging.api.MessageKey;
+
+import dk.radius.java.module.catalystone.audit.AuditSink;
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * State of a single <i>process()</i> invocation.
+ * Passed through the processing steps instead of being kept in the bean, so one bean instance can process
+ * several messages concurrently.
+ */
+final class ProcessContext {
+	private final Message msg;
+	private final MessageKey msgKey;
+	private final DO_Authentication config;
+	private final AuditSink audit;
+	private final DO_AccessToken accessToken;
+
+
+	ProcessContext(Message msg, DO_Authentication config, AuditSink audit) {
+		this(msg, msg.getMessageKey(), config, audit, null);
+	}
+
+
+	private ProcessContext(Message msg, MessageKey msgKey, DO_Authentication config, AuditSink audit, DO_AccessToken accessToken) {
+		this.msg = msg;
+		this.msgKey = msgKey;
+		this.config = config;
+		this.audit = audit;
+		this.accessToken = accessToken;
+	}
+
+
+	/**
+	 * Create a copy of this context with the resolved "AccessToken".
+	 * @param accessToken <i>DO_AccessToken</i> resolved token
+	 * @return <i>ProcessContext</i> new context
+	 */
+	ProcessContext withAccessToken(DO_AccessToken accessToken) {
+		return new ProcessContext(msg, msgKey, config, audit, accessToken);
+	}
+
+
+	/*
+	 * Getters
+	 */
+	Message getMessage() {
+		return msg;
+	}
+	MessageKey getMessageKey() {
+		return msgKey;
+	}
+	DO_Authentication getConfig() {
+		return config;
+	}
+	AuditSink getAudit() {
+		return audit;
+	}
+	DO_AccessToken getAccessToken() {
+		return accessToken;
+	}
+}
@@ -0,0 +1,28 @@
+package dk.radius.java.module.catalystone.audit;
+
+/**
+ * Amount of audit log entries written per message.
+ */
+public enum AuditLevel {
+	/** Errors only */
+	QUIET,
+	/** Errors and routine entries such as module start and end */
+	NORMAL,
+	/** Everything, including details of the token handling */
+	DEBUG;
+
+
+	/**
+	 * Get level from module parameter value.
+	 * @param value <i>String</i> module parameter value, case insensitive
+	 * @return <i>AuditLevel</i> or null if value is not a known level
+	 */
+	public static AuditLevel fromString(String value) {
+		for (AuditLevel level : values()) {
+			if (level.name().equalsIgnoreCase(value)) {
+				return level;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,114 @@
+package dk.radius.java.module.catalystone.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sap.engine.interfaces.messaging.api.MessageKey;
+import com.sap.engine.interfaces.messaging.api.auditlog.AuditAccess;
+import com.sap.engine.interfaces.messaging.api.auditlog.AuditLogStatus;
+
+/**
+ * Buffers audit log entries of a single message and writes them to the messaging system in one go when flushed.
+ * <p>
+ * Entries are stored as their parts and only concatenated when written, so entries below the configured
+ * <i>AuditLevel</i> never have their text built. The level can be set after entries have been added, which allows
+ * the module start entry to be added before the module parameters are known.
+ * An instance belongs to one message and is not thread safe.
+ */
+public final class AuditSink {
+	private final AuditAccess audit;
+	private final MessageKey msgKey;
+	private final List<Entry> entries = new ArrayList<Entry>(8);
+	private AuditLevel level = AuditLevel.NORMAL;
+	private boolean levelSet = false;
+
+
+	public AuditSink(AuditAccess audit, MessageKey msgKey) {
+		this.audit = audit;
+		this.msgKey = msgKey;
+	}
+
+
+	/**
+	 * Add a routine entry, written unless level is <i>QUIET</i>.
+	 * @param parts <i>Object</i> parts of entry text, concatenated when written
+	 */
+	public void info(Object... parts) {
+		entries.add(new Entry(AuditLevel.NORMAL, AuditLogStatus.SUCCESS, parts));
+	}
+
+
+	/**
+	 * Add a debug entry, only written if level is <i>DEBUG</i>.
+	 * @param parts <i>Object</i> parts of entry text, concatenated when written
+	 */
+	public void debug(Object... parts) {
+		// Skip buffering once we know the entry will not be written
+		if (!levelSet || level == AuditLevel.DEBUG) {
+			entries.add(new Entry(AuditLevel.DEBUG, AuditLogStatus.SUCCESS, parts));
+		}
+	}
+
+
+	/**
+	 * Add an error entry, always written.
+	 * @param parts <i>Object</i> parts of entry text, concatenated when written
+	 */
+	public void error(Object... parts) {
+		entries.add(new Entry(AuditLevel.QUIET, AuditLogStatus.ERROR, parts));
+	}
+
+
+	/**
+	 * Write buffered entries allowed by the current level to the audit log and clear the buffer.
+	 */
+	public void flush() {
+		for (Entry entry : entries) {
+			if (entry.level.compareTo(level) <= 0) {
+				audit.addAuditLogEntry(msgKey, entry.status, entry.text());
+			}
+		}
+		entries.clear();
+	}
+
+
+	public boolean isDebugEnabled() {
+		return level == AuditLevel.DEBUG;
+	}
+
+
+	public AuditLevel getLevel() {
+		return level;
+	}
+	public void setLevel(AuditLevel level) {
+		this.level = level;
+		this.levelSet = true;
+	}
+
+
+	private static final class Entry {
+		private final AuditLevel level;
+		private final AuditLogStatus status;
+		private final Object[] parts;
+
+
+		private Entry(AuditLevel level, AuditLogStatus status, Object[] parts) {
+			this.level = level;
+			this.status = status;
+			this.parts = parts;
+		}
+
+
+		private String text() {
+			if (parts.length == 1) {
+				return String.valueOf(parts[0]);
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for (Object part : parts) {
+				sb.append(part);
+			}
+			return sb.toString();
+		}
+	}
+}
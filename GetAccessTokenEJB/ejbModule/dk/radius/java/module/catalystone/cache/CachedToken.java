@@ -0,0 +1,104 @@
+package dk.radius.java.module.catalystone.cache;
+
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+
+/**
+ * Access token held in the <i>TokenCache</i> together with the point in time where it expires.
+ * <p>
+ * Only the token strings are kept from the server response, expiry is held as epoch milliseconds instead of the
+ * "expires_in" strings, to keep entries small when many credentials are cached.
+ */
+public final class CachedToken {
+	public static final long UNKNOWN_EXPIRY = -1;
+
+	// Last access is only updated when older than this, to avoid a volatile write on every cache hit
+	private static final long ACCESS_RESOLUTION_MILLIS = 1000;
+
+	private final DO_AccessToken accessToken;
+	private final long expiresAtMillis;
+	private final long refreshTokenExpiresAtMillis;
+	private final long cachedAtMillis = System.currentTimeMillis();
+	// A new entry counts as just accessed, so it is not the first to be evicted
+	private volatile long lastAccessMillis = cachedAtMillis;
+	private volatile boolean used = false;
+
+
+	public CachedToken(DO_AccessToken accessToken, long expiresAtMillis, long refreshTokenExpiresAtMillis) {
+		this.accessToken = new DO_AccessToken();
+		this.accessToken.accessToken = accessToken.accessToken;
+		this.accessToken.refreshToken = accessToken.refreshToken;
+		this.expiresAtMillis = expiresAtMillis;
+		this.refreshTokenExpiresAtMillis = refreshTokenExpiresAtMillis;
+	}
+
+
+	/**
+	 * Check if token can still be used.
+	 * @param nowMillis <i>long</i> current time
+	 * @param marginMillis <i>long</i> safety margin before actual expiry where token is no longer handed out
+	 * @return boolean true if token is valid for at least <b>marginMillis</b>
+	 */
+	public boolean isValid(long nowMillis, long marginMillis) {
+		return nowMillis + marginMillis < expiresAtMillis;
+	}
+
+
+	/**
+	 * Check if the refresh token returned with this token can still be used for renewal.
+	 * A refresh token without a known expiry is assumed usable.
+	 * @param nowMillis <i>long</i> current time
+	 * @return boolean true if a refresh token is present and not expired
+	 */
+	public boolean canRefresh(long nowMillis) {
+		if (accessToken.refreshToken == null) {
+			return false;
+		}
+		return refreshTokenExpiresAtMillis == UNKNOWN_EXPIRY || nowMillis < refreshTokenExpiresAtMillis;
+	}
+
+
+	/**
+	 * Mark token as handed out to a message.
+	 * @param nowMillis <i>long</i> current time
+	 */
+	void markUsed(long nowMillis) {
+		if (!used) {
+			used = true;
+		}
+		if (nowMillis - lastAccessMillis > ACCESS_RESOLUTION_MILLIS) {
+			lastAccessMillis = nowMillis;
+		}
+	}
+
+
+	/*
+	 * Getters
+	 */
+	public DO_AccessToken getAccessToken() {
+		return accessToken;
+	}
+	public long getExpiresAtMillis() {
+		return expiresAtMillis;
+	}
+	public long getRefreshTokenExpiresAtMillis() {
+		return refreshTokenExpiresAtMillis;
+	}
+	/**
+	 * @return <i>long</i> point in time where this node received the token, from the server or a shared store
+	 */
+	public long getCachedAtMillis() {
+		return cachedAtMillis;
+	}
+	/**
+	 * @return <i>long</i> point in time where the token was last handed out to a message, or cached if it never was
+	 */
+	public long getLastAccessMillis() {
+		return lastAccessMillis;
+	}
+	/**
+	 * @return boolean true if token has been handed out to a message since it was cached
+	 */
+	public boolean isUsed() {
+		return used;
+	}
+}
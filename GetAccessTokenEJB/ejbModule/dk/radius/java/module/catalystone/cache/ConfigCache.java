@@ -0,0 +1,152 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Validated module parameters per <i>GetAccessTokenBean</i> in a communication channel, see <i>ModuleKey</i>.
+ * <p>
+ * Within the configured time to live a cached entry is used, only the module parameters of the key are read.
+ * After that all parameters are read again and compared to the cached ones. If they are unchanged the entry is
+ * kept and its time to live restarted, otherwise it is replaced by the newly validated parameters, and failures
+ * remembered for the old parameters in the <i>FailureCache</i> are removed.
+ * So a changed "authenticationUrl", "clientId" or "accessTokenHeaderName" is used with the next message, other
+ * changed parameters up to "configCacheTtl" seconds later. Set "configCacheTtl" to 0 to read them with every message.
+ * Cached <i>DO_Authentication</i> objects are shared between threads and must not be modified.
+ */
+public final class ConfigCache {
+	private static final ConfigCache INSTANCE = new ConfigCache();
+
+	private final ConcurrentMap<ModuleKey, Entry> configs = new ConcurrentHashMap<ModuleKey, Entry>();
+
+
+	private ConfigCache() {
+	}
+
+
+	public static ConfigCache getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Get module parameters that are within their time to live.
+	 * @param key <i>ModuleKey</i> module in communication channel
+	 * @return <i>DO_Authentication</i> or null if parameters must be read again
+	 */
+	public DO_Authentication get(ModuleKey key) {
+		if (key.getChannelId() == null) {
+			return null;
+		}
+
+		Entry entry = configs.get(key);
+		if (entry == null || System.currentTimeMillis() >= entry.checkAfterMillis) {
+			return null;
+		}
+
+		return entry.config;
+	}
+
+
+	/**
+	 * Get cached module parameters if they are unchanged compared to the ones just read from the channel.
+	 * @param key <i>ModuleKey</i> module in communication channel
+	 * @param extracted <i>DO_Authentication</i> module parameters just read from the channel, not validated
+	 * @return <i>DO_Authentication</i> cached parameters, or null if nothing is cached or the parameters changed
+	 */
+	public DO_Authentication getIfUnchanged(ModuleKey key, DO_Authentication extracted) {
+		if (key.getChannelId() == null) {
+			return null;
+		}
+
+		Entry entry = configs.get(key);
+		if (entry == null) {
+			return null;
+		}
+
+		if (!entry.config.hasSameParameters(extracted)) {
+			if (configs.remove(key, entry)) {
+				FailureCache.getInstance().invalidate(key, entry.config);
+			}
+			return null;
+		}
+
+		entry.checkAfterMillis = System.currentTimeMillis() + entry.config.getConfigCacheTtlSeconds() * 1000L;
+		return entry.config;
+	}
+
+
+	/**
+	 * Get the latest validated module parameters of a channel, also if their time to live has passed.
+	 * @param channelId <i>String</i> communication channel ID
+	 * @param accessTokenHeaderName <i>String</i> selects the module if the channel has several, null for the module
+	 * validated most recently
+	 * @return <i>DO_Authentication</i> or null if no parameters are cached
+	 */
+	public DO_Authentication getLatest(String channelId, String accessTokenHeaderName) {
+		if (channelId == null) {
+			return null;
+		}
+
+		Entry latest = null;
+		for (Entry entry : configs.values()) {
+			if (entry.channelId.equals(channelId)
+					&& (accessTokenHeaderName == null || accessTokenHeaderName.equals(entry.config.getDynamicConfigurationPropertyName()))
+					&& (latest == null || entry.validatedAtMillis > latest.validatedAtMillis)) {
+				latest = entry;
+			}
+		}
+
+		return latest != null ? latest.config : null;
+	}
+
+
+	/**
+	 * Cache validated module parameters.
+	 * @param key <i>ModuleKey</i> module in communication channel
+	 * @param config <i>DO_Authentication</i> validated module parameters
+	 */
+	public void put(ModuleKey key, DO_Authentication config) {
+		if (key.getChannelId() == null) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		configs.put(key, new Entry(key.getChannelId(), config, now, now + config.getConfigCacheTtlSeconds() * 1000L));
+	}
+
+
+	/**
+	 * Remove cached module parameters of all modules in a channel, they are read and validated again on the next message.
+	 * @param channelId <i>String</i> communication channel ID
+	 */
+	public void invalidate(String channelId) {
+		if (channelId == null) {
+			return;
+		}
+
+		for (ModuleKey key : configs.keySet()) {
+			if (channelId.equals(key.getChannelId())) {
+				configs.remove(key);
+			}
+		}
+	}
+
+
+	private static final class Entry {
+		private final String channelId;
+		private final DO_Authentication config;
+		private final long validatedAtMillis;
+		private volatile long checkAfterMillis;
+
+
+		private Entry(String channelId, DO_Authentication config, long validatedAtMillis, long checkAfterMillis) {
+			this.channelId = channelId;
+			this.config = config;
+			this.validatedAtMillis = validatedAtMillis;
+			this.checkAfterMillis = checkAfterMillis;
+		}
+	}
+}
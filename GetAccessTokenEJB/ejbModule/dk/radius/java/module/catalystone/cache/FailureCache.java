@@ -0,0 +1,146 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import dk.radius.java.module.catalystone.AccessTokenException;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+import dk.radius.java.module.catalystone.pojo.ValidationException;
+
+/**
+ * Failures caused by the module parameters of a channel, remembered for "failureCacheTtl" seconds so a misconfigured
+ * channel fails fast instead of validating its parameters and calling the authentication server on every message.
+ * <p>
+ * Validation failures are kept per module in a communication channel (<i>ModuleKey</i>), rejected token requests (400, 401, 403) per credentials.
+ * Each entry holds the module parameters that caused it and is only used while the parameters are unchanged.
+ */
+public final class FailureCache {
+	private static final FailureCache INSTANCE = new FailureCache();
+
+	private final ConcurrentMap<ModuleKey, Entry<ValidationException>> validationFailures = new ConcurrentHashMap<ModuleKey, Entry<ValidationException>>();
+	private final ConcurrentMap<TokenKey, Entry<AccessTokenException>> authFailures = new ConcurrentHashMap<TokenKey, Entry<AccessTokenException>>();
+
+
+	private FailureCache() {
+	}
+
+
+	public static FailureCache getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Check if a token request failure is caused by the module parameters, and so will fail again until they are changed.
+	 * @param e <i>AccessTokenException</i> token request failure
+	 * @return boolean true if the authentication server rejected the request with 400, 401 or 403
+	 */
+	public static boolean isCacheable(AccessTokenException e) {
+		int responseCode = e.getResponseCode();
+		return responseCode == 400 || responseCode == 401 || responseCode == 403;
+	}
+
+
+	/**
+	 * Get cached validation failure of a module.
+	 * @param key <i>ModuleKey</i> module in communication channel
+	 * @param extracted <i>DO_Authentication</i> module parameters just read from the channel, not validated
+	 * @return <i>ValidationException</i> or null if nothing is cached or the parameters changed
+	 */
+	public ValidationException getValidationFailure(ModuleKey key, DO_Authentication extracted) {
+		if (key.getChannelId() == null) {
+			return null;
+		}
+
+		ValidationException e = get(validationFailures, key, extracted);
+		return e != null ? new ValidationException(e.getMessage()) : null;
+	}
+
+
+	/**
+	 * Cache validation failure of a module.
+	 * @param key <i>ModuleKey</i> module in communication channel
+	 * @param extracted <i>DO_Authentication</i> module parameters that failed validation
+	 * @param e <i>ValidationException</i> validation failure
+	 */
+	public void putValidationFailure(ModuleKey key, DO_Authentication extracted, ValidationException e) {
+		if (key.getChannelId() != null) {
+			put(validationFailures, key, extracted, e);
+		}
+	}
+
+
+	/**
+	 * Get cached token request failure of credentials.
+	 * @param key <i>TokenKey</i> credentials set in adapter module
+	 * @param config <i>DO_Authentication</i> validated module parameters
+	 * @return <i>AccessTokenException</i> or null if nothing is cached or the parameters changed
+	 */
+	public AccessTokenException getAuthFailure(TokenKey key, DO_Authentication config) {
+		AccessTokenException e = get(authFailures, key, config);
+		return e != null ? new AccessTokenException(e.getMessage(), e.getResponseCode()) : null;
+	}
+
+
+	/**
+	 * Cache token request failure of credentials, if it is caused by the module parameters.
+	 * @param key <i>TokenKey</i> credentials set in adapter module
+	 * @param config <i>DO_Authentication</i> validated module parameters
+	 * @param e <i>AccessTokenException</i> token request failure
+	 */
+	public void putAuthFailure(TokenKey key, DO_Authentication config, AccessTokenException e) {
+		if (isCacheable(e)) {
+			put(authFailures, key, config, e);
+		}
+	}
+
+
+	/**
+	 * Remove cached failures of module parameters, called when the parameters of a module are replaced.
+	 * @param key <i>ModuleKey</i> module in communication channel
+	 * @param config <i>DO_Authentication</i> previous module parameters of the module
+	 */
+	public void invalidate(ModuleKey key, DO_Authentication config) {
+		validationFailures.remove(key);
+		authFailures.remove(TokenKey.of(config));
+	}
+
+
+	private static <K, E extends Exception> E get(ConcurrentMap<K, Entry<E>> failures, K key, DO_Authentication config) {
+		Entry<E> entry = failures.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (System.currentTimeMillis() >= entry.expiresAtMillis || !entry.config.hasSameParameters(config)) {
+			failures.remove(key, entry);
+			return null;
+		}
+
+		return entry.failure;
+	}
+
+
+	private static <K, E extends Exception> void put(ConcurrentMap<K, Entry<E>> failures, K key, DO_Authentication config, E failure) {
+		long ttlSeconds = config.getFailureCacheTtlSeconds();
+
+		if (ttlSeconds > 0) {
+			failures.put(key, new Entry<E>(config, failure, System.currentTimeMillis() + ttlSeconds * 1000L));
+		}
+	}
+
+
+	private static final class Entry<E extends Exception> {
+		private final DO_Authentication config;
+		private final E failure;
+		private final long expiresAtMillis;
+
+
+		private Entry(DO_Authentication config, E failure, long expiresAtMillis) {
+			this.config = config;
+			this.failure = failure;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+	}
+}
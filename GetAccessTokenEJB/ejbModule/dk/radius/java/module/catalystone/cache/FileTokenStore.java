@@ -0,0 +1,284 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+
+/**
+ * <i>TokenStore</i> keeping tokens as files in a directory shared by the server nodes, eg. a network file system.
+ * <p>
+ * Each key is stored in its own file named by a hash of the key. Files are written to a temporary file and moved in
+ * place, so readers never see a partial token. Leases are files created atomically next to the token file, holding
+ * an id unique to each acquisition, starting with the owning node, and the time the lease expires. Token files contain access tokens, so on file systems supporting
+ * posix permissions the directory and files are created readable by the user running the server only.
+ */
+public final class FileTokenStore implements TokenStore {
+	private static final String NODE_ID = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+	private static final String OWNER_ONLY_FILE = "rw-------";
+	private static final String OWNER_ONLY_DIRECTORY = "rwx------";
+
+	private final Path directory;
+	private final Gson gson = new Gson();
+
+
+	public FileTokenStore(String directory) {
+		this.directory = Paths.get(directory);
+	}
+
+
+	@Override
+	public CachedToken load(TokenKey key) {
+		try {
+			String json = new String(Files.readAllBytes(tokenFile(key)), StandardCharsets.UTF_8);
+			StoredToken stored = gson.fromJson(json, StoredToken.class);
+
+			if (stored == null || stored.accessToken == null) {
+				return null;
+			}
+
+			DO_AccessToken at = new DO_AccessToken();
+			at.accessToken = stored.accessToken;
+			at.refreshToken = stored.refreshToken;
+			return new CachedToken(at, stored.expiresAtMillis, stored.refreshTokenExpiresAtMillis);
+
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		} catch (JsonSyntaxException e) {
+			return null;
+		}
+	}
+
+
+	@Override
+	public void store(TokenKey key, CachedToken token) {
+		StoredToken stored = new StoredToken();
+		stored.accessToken = token.getAccessToken().accessToken;
+		stored.refreshToken = token.getAccessToken().refreshToken;
+		stored.expiresAtMillis = token.getExpiresAtMillis();
+		stored.refreshTokenExpiresAtMillis = token.getRefreshTokenExpiresAtMillis();
+
+		Path target = tokenFile(key);
+		Path temp = directory.resolve(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			createDirectory();
+			Files.write(createFile(temp), gson.toJson(stored).getBytes(StandardCharsets.UTF_8));
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			// Token is still cached locally, other nodes request their own
+			deleteQuietly(temp);
+		}
+	}
+
+
+	@Override
+	public void remove(TokenKey key) {
+		deleteQuietly(tokenFile(key));
+	}
+
+
+	@Override
+	public String tryAcquireLease(TokenKey key, long leaseMillis) {
+		Path lease = leaseFile(key);
+		// Unique per acquisition, so a request can not release a lease taken over by another request of this node
+		String leaseId = NODE_ID + "/" + UUID.randomUUID();
+		String content = leaseId + "\n" + (System.currentTimeMillis() + leaseMillis);
+
+		try {
+			createDirectory();
+			try {
+				Files.write(createFile(lease), content.getBytes(StandardCharsets.UTF_8));
+				return leaseId;
+			} catch (FileAlreadyExistsException e) {
+				// Lease held by another node, take it over if it has expired
+				if (takeOverExpired(lease)) {
+					Files.write(createFile(lease), content.getBytes(StandardCharsets.UTF_8));
+					return leaseId;
+				}
+				return null;
+			}
+		} catch (FileAlreadyExistsException e) {
+			// Another node created a lease first
+			return null;
+		} catch (IOException e) {
+			// Store not usable, request token without lease
+			return leaseId;
+		}
+	}
+
+
+	/**
+	 * Remove an expired lease so that only one node can take it over.
+	 * <p>
+	 * The lease is moved to a name unique to this attempt, only one of several nodes seeing the expired lease
+	 * succeeds. If the moved lease is not the expired one, another node has taken over and created a new lease
+	 * meanwhile, it is moved back.
+	 * @param lease <i>Path</i> lease file
+	 * @return boolean true if the expired lease was removed by this node, which may now create a new lease
+	 * @throws IOException if the store is not usable
+	 */
+	private boolean takeOverExpired(Path lease) throws IOException {
+		String[] expired = readLease(lease);
+		if (!isExpired(expired)) {
+			return false;
+		}
+
+		Path moved = directory.resolve(lease.getFileName() + "." + UUID.randomUUID() + ".expired");
+		try {
+			Files.move(lease, moved, StandardCopyOption.ATOMIC_MOVE);
+		} catch (NoSuchFileException e) {
+			// Another node moved it first
+			return false;
+		}
+
+		String[] content = readLease(moved);
+		if (content != null && Arrays.equals(content, expired)) {
+			deleteQuietly(moved);
+			return true;
+		}
+
+		// Not the lease seen expired, give it back unless yet another lease was created
+		try {
+			Files.move(moved, lease);
+		} catch (IOException e) {
+			deleteQuietly(moved);
+		}
+		return false;
+	}
+
+
+	@Override
+	public void releaseLease(TokenKey key, String leaseId) {
+		Path lease = leaseFile(key);
+		String[] content = readLease(lease);
+
+		if (content != null && content[0].equals(leaseId)) {
+			deleteQuietly(lease);
+		}
+	}
+
+
+	private boolean isExpired(String[] content) {
+		if (content == null || content.length < 2) {
+			// Lease is being written or unreadable, treat as held
+			return false;
+		}
+
+		try {
+			return System.currentTimeMillis() > Long.parseLong(content[1].trim());
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+
+	private String[] readLease(Path lease) {
+		try {
+			return new String(Files.readAllBytes(lease), StandardCharsets.UTF_8).split("\n");
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Create directory of the store, readable by the owner only if it does not exist yet.
+	 */
+	private void createDirectory() throws IOException {
+		if (Files.isDirectory(directory)) {
+			return;
+		}
+
+		if (isPosix()) {
+			Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY_DIRECTORY)));
+		} else {
+			Files.createDirectories(directory);
+		}
+	}
+
+
+	/**
+	 * Create a new file, readable by the owner only.
+	 * @throws FileAlreadyExistsException if the file exists
+	 */
+	private Path createFile(Path path) throws IOException {
+		if (isPosix()) {
+			FileAttribute<?> ownerOnly = PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(OWNER_ONLY_FILE));
+			return Files.createFile(path, ownerOnly);
+		}
+		return Files.createFile(path);
+	}
+
+
+	private boolean isPosix() {
+		return directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+	}
+
+
+	private void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// Nothing more to do
+		}
+	}
+
+
+	private Path tokenFile(TokenKey key) {
+		return directory.resolve(fileName(key) + ".token");
+	}
+
+
+	private Path leaseFile(TokenKey key) {
+		return directory.resolve(fileName(key) + ".lease");
+	}
+
+
+	private String fileName(TokenKey key) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : hash) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is available in every JVM
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * File content of a stored token.
+	 */
+	private static final class StoredToken {
+		private String accessToken;
+		private String refreshToken;
+		private long expiresAtMillis;
+		private long refreshTokenExpiresAtMillis;
+	}
+}
@@ -0,0 +1,74 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import dk.radius.java.module.catalystone.AccessTokenException;
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+
+/**
+ * Coalesces concurrent token requests for the same credentials, so only one request per key is sent to the
+ * authentication server at a time. The first caller performs the request, concurrent callers wait for its result.
+ */
+public final class InFlightRequests {
+	private static final InFlightRequests INSTANCE = new InFlightRequests();
+
+	private final ConcurrentMap<TokenKey, FutureTask<DO_AccessToken>> inFlight = new ConcurrentHashMap<TokenKey, FutureTask<DO_AccessToken>>();
+
+
+	private InFlightRequests() {
+	}
+
+
+	public static InFlightRequests getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Run <b>request</b> unless a request for the same key is already in progress, in which case its result is used.
+	 * @param key <i>TokenKey</i> credentials the token is requested for
+	 * @param request <i>Callable</i> performing the request, run in the calling thread
+	 * @param waitTimeoutSeconds <i>long</i> maximum time to wait for a request started by another caller
+	 * @return <i>DO_AccessToken</i> result of the request
+	 * @throws AccessTokenException if the request failed or the wait timed out
+	 */
+	public DO_AccessToken request(TokenKey key, Callable<DO_AccessToken> request, long waitTimeoutSeconds) throws AccessTokenException {
+		FutureTask<DO_AccessToken> task = new FutureTask<DO_AccessToken>(request);
+		FutureTask<DO_AccessToken> existing = inFlight.putIfAbsent(key, task);
+
+		if (existing == null) {
+			// No request in progress, perform it in this thread
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(key, task);
+			}
+			return await(task, key, waitTimeoutSeconds);
+		}
+
+		return await(existing, key, waitTimeoutSeconds);
+	}
+
+
+	private DO_AccessToken await(FutureTask<DO_AccessToken> task, TokenKey key, long waitTimeoutSeconds) throws AccessTokenException {
+		try {
+			return task.get(waitTimeoutSeconds, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof AccessTokenException) {
+				throw (AccessTokenException) e.getCause();
+			}
+			throw new AccessTokenException("Error requesting AccessToken for " + key + ": " + e.getCause());
+		} catch (TimeoutException e) {
+			throw new AccessTokenException("Timed out after " + waitTimeoutSeconds + " seconds waiting for AccessToken request in progress for " + key);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AccessTokenException("Interrupted while waiting for AccessToken request in progress for " + key);
+		}
+	}
+}
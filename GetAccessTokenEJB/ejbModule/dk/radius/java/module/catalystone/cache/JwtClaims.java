@@ -0,0 +1,122 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Time claims of an access token issued as JWT.
+ * <p>
+ * Only header and claims are decoded (base64url), the signature is not verified. The claims are used to find out
+ * how long the token can be cached, not to trust its content.
+ */
+final class JwtClaims {
+	public static final long UNKNOWN = -1;
+	// The clock skew tolerance takes at most this share of the token lifetime
+	private static final long MAX_SKEW_SHARE_OF_LIFETIME = 4;
+
+	private long expiresAtSeconds = UNKNOWN;
+	private long issuedAtSeconds = UNKNOWN;
+
+
+	private JwtClaims() {
+	}
+
+
+	/**
+	 * Decode the claims of a JWT.
+	 * @param token <i>String</i> access token returned by authentication server
+	 * @return <i>JwtClaims</i> or null if the token is not a JWT
+	 */
+	static JwtClaims parse(String token) {
+		if (token == null) {
+			return null;
+		}
+
+		int headerEnd = token.indexOf('.');
+		int claimsEnd = token.indexOf('.', headerEnd + 1);
+		if (headerEnd <= 0 || claimsEnd < 0) {
+			return null;
+		}
+
+		try {
+			JwtClaims claims = new JwtClaims();
+			read(decode(token.substring(0, headerEnd)), null);
+			read(decode(token.substring(headerEnd + 1, claimsEnd)), claims);
+			return claims;
+
+		} catch (IllegalArgumentException e) {
+			// Not base64url
+			return null;
+		} catch (IllegalStateException e) {
+			// Not a json object
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+
+	private static String decode(String part) {
+		return new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Read a json object, picking up the time claims if <b>claims</b> is set.
+	 */
+	private static void read(String json, JwtClaims claims) throws IOException {
+		JsonReader reader = new JsonReader(new StringReader(json));
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+
+			if (claims != null && reader.peek() == JsonToken.NUMBER && name.equals("exp")) {
+				claims.expiresAtSeconds = (long) reader.nextDouble();
+			} else if (claims != null && reader.peek() == JsonToken.NUMBER && name.equals("iat")) {
+				claims.issuedAtSeconds = (long) reader.nextDouble();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+
+	/**
+	 * Calculate expiry on the local clock.
+	 * <p>
+	 * The "exp" claim is on the clock of the authentication server, so expiry is moved earlier by the clock skew tolerance,
+	 * but by no more than a quarter of the token lifetime ("exp" - "iat"), so short-lived tokens can still be cached.
+	 * If "iat" shows that the authentication server clock is ahead of the local clock by more than the tolerance,
+	 * expiry is moved earlier by the measured difference as well.
+	 * @param nowMillis <i>long</i> current time, shortly after the token was issued
+	 * @param clockSkewMillis <i>long</i> tolerated difference between local clock and authentication server clock
+	 * @return <i>long</i> expiry in epoch milliseconds, or <b>UNKNOWN</b> if the token has no "exp" claim
+	 */
+	long getExpiresAtMillis(long nowMillis, long clockSkewMillis) {
+		if (expiresAtSeconds == UNKNOWN) {
+			return UNKNOWN;
+		}
+
+		// Without "iat" the lifetime is measured on the local clock
+		long lifetimeMillis = expiresAtSeconds * 1000L - (issuedAtSeconds != UNKNOWN ? issuedAtSeconds * 1000L : nowMillis);
+		long skewMillis = Math.min(clockSkewMillis, Math.max(0, lifetimeMillis) / MAX_SKEW_SHARE_OF_LIFETIME);
+
+		long expiresAt = expiresAtSeconds * 1000L - skewMillis;
+
+		if (issuedAtSeconds != UNKNOWN) {
+			long serverAhead = issuedAtSeconds * 1000L - nowMillis;
+			if (serverAhead > skewMillis) {
+				expiresAt -= serverAhead;
+			}
+		}
+
+		return expiresAt;
+	}
+}
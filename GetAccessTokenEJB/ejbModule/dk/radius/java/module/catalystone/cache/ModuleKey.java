@@ -0,0 +1,85 @@
+package dk.radius.java.module.catalystone.cache;
+
+/**
+ * Identifies a <i>GetAccessTokenBean</i> in the module chain of a communication channel. A chain may contain more than
+ * one, eg. to get tokens for two authentication servers, they are told apart by the module parameters
+ * "authenticationUrl", "clientId" and "accessTokenHeaderName". Values are not validated and may be null.
+ */
+public final class ModuleKey {
+	private final String channelId;
+	private final String authenticationUrl;
+	private final String clientId;
+	private final String accessTokenHeaderName;
+	private final int hash;
+
+
+	public ModuleKey(String channelId, String authenticationUrl, String clientId, String accessTokenHeaderName) {
+		this.channelId = channelId;
+		this.authenticationUrl = authenticationUrl;
+		this.clientId = clientId;
+		this.accessTokenHeaderName = accessTokenHeaderName;
+
+		int h = hashCode(channelId);
+		h = 31 * h + hashCode(authenticationUrl);
+		h = 31 * h + hashCode(clientId);
+		h = 31 * h + hashCode(accessTokenHeaderName);
+		this.hash = h;
+	}
+
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ModuleKey)) {
+			return false;
+		}
+		ModuleKey other = (ModuleKey) obj;
+		return hash == other.hash
+				&& equals(channelId, other.channelId)
+				&& equals(authenticationUrl, other.authenticationUrl)
+				&& equals(clientId, other.clientId)
+				&& equals(accessTokenHeaderName, other.accessTokenHeaderName);
+	}
+
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+
+	@Override
+	public String toString() {
+		return channelId + " (authenticationUrl: " + authenticationUrl + ", clientId: " + clientId
+				+ ", accessTokenHeaderName: " + accessTokenHeaderName + ")";
+	}
+
+
+	private static int hashCode(String value) {
+		return value == null ? 0 : value.hashCode();
+	}
+
+
+	private static boolean equals(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+
+	/*
+	 * Getters
+	 */
+	public String getChannelId() {
+		return channelId;
+	}
+	public String getAuthenticationUrl() {
+		return authenticationUrl;
+	}
+	public String getClientId() {
+		return clientId;
+	}
+	public String getAccessTokenHeaderName() {
+		return accessTokenHeaderName;
+	}
+}
@@ -0,0 +1,314 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+
+/**
+ * Access token cache shared by all module instances in the JVM.
+ * Tokens are reused until they are within the configured margin of their "expires_in" value.
+ * <p>
+ * The number of cached tokens is bounded by the JVM system property "dk.radius.catalystone.tokenCacheMaxSize"
+ * (default 1000). When the bound is exceeded, expired tokens are removed first. If that is not enough, the token
+ * expiring first among the least recently used tokens is evicted.
+ * <p>
+ * Also the default, node local, <i>TokenStore</i>. As only the node itself uses it, leases are always granted.
+ */
+public final class TokenCache implements TokenStore {
+	private static final TokenCache INSTANCE = new TokenCache();
+
+	private static final int DEFAULT_MAX_SIZE = 1000;
+	// Number of least recently used tokens considered when choosing the token to evict
+	private static final int EVICTION_CANDIDATES = 8;
+	// Lease id of the local store, which has no lease to release
+	private static final String LOCAL_LEASE = "local";
+
+	private final ConcurrentMap<TokenKey, CachedToken> tokens = new ConcurrentHashMap<TokenKey, CachedToken>();
+	private final LongAdder evictions = new LongAdder();
+	private final int maxSize;
+
+
+	private TokenCache() {
+		maxSize = Math.max(1, Integer.getInteger("dk.radius.catalystone.tokenCacheMaxSize", DEFAULT_MAX_SIZE));
+	}
+
+
+	public static TokenCache getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Get a cached token that is valid for at least <b>marginSeconds</b>.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @param marginSeconds <i>long</i> safety margin before expiry
+	 * @return <i>DO_AccessToken</i> or null if no valid token is cached
+	 */
+	public DO_AccessToken get(TokenKey key, long marginSeconds) {
+		CachedToken cached = tokens.get(key);
+
+		if (cached == null) {
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+
+		if (!cached.isValid(now, marginSeconds * 1000L)) {
+			// Keep tokens within the margin, they may still be used if the authentication server is unavailable
+			if (!cached.isValid(now, 0)) {
+				// Only remove the entry we looked at, another thread may have replaced it meanwhile
+				tokens.remove(key, cached);
+			}
+			return null;
+		}
+
+		cached.markUsed(now);
+		return cached.getAccessToken();
+	}
+
+
+	/**
+	 * Get a cached token that has not yet expired, ignoring the safety margin.
+	 * Only meant to be used when a new token can not be requested.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @return <i>DO_AccessToken</i> or null if no unexpired token is cached
+	 */
+	public DO_AccessToken getUnexpired(TokenKey key) {
+		return get(key, 0);
+	}
+
+
+	/**
+	 * Get cached entry regardless of its expiry.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @return <i>CachedToken</i> or null if nothing is cached
+	 */
+	public CachedToken getEntry(TokenKey key) {
+		return tokens.get(key);
+	}
+
+
+	/**
+	 * Cache token using the "expires_in" value returned by the authentication server.
+	 * If the token is a JWT, its "exp" claim is used when "expires_in" is missing, and caps "expires_in" otherwise.
+	 * Tokens without a usable expiry are not cached.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @param accessToken <i>DO_AccessToken</i> token returned by authentication server
+	 * @param clockSkewSeconds <i>long</i> tolerated difference between local clock and authentication server clock,
+	 * limited to a quarter of the token lifetime
+	 * @return <i>CachedToken</i> the cached entry, or null if token was not cached
+	 */
+	public CachedToken put(TokenKey key, DO_AccessToken accessToken, long clockSkewSeconds) {
+		if (accessToken.accessToken == null) {
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+		long expiresAt = getExpiresAtMillis(now, accessToken, clockSkewSeconds * 1000L);
+		long refreshTokenExpiresInSeconds = parseSeconds(accessToken.refreshTokenExpiresIn);
+
+		if (expiresAt <= now) {
+			return null;
+		}
+
+		long refreshTokenExpiresAt = refreshTokenExpiresInSeconds > 0 ? now + refreshTokenExpiresInSeconds * 1000L : CachedToken.UNKNOWN_EXPIRY;
+		return put(key, new CachedToken(accessToken, expiresAt, refreshTokenExpiresAt));
+	}
+
+
+	/**
+	 * Find expiry of a token from "expires_in" and, if the token is a JWT, the "exp" claim. The earliest one wins.
+	 * @return <i>long</i> expiry in epoch milliseconds, or <b>UNKNOWN_EXPIRY</b>
+	 */
+	private long getExpiresAtMillis(long now, DO_AccessToken accessToken, long clockSkewMillis) {
+		long expiresInSeconds = parseSeconds(accessToken.expiresIn);
+		long expiresAt = expiresInSeconds > 0 ? now + expiresInSeconds * 1000L : CachedToken.UNKNOWN_EXPIRY;
+
+		JwtClaims claims = JwtClaims.parse(accessToken.accessToken);
+		long jwtExpiresAt = claims != null ? claims.getExpiresAtMillis(now, clockSkewMillis) : JwtClaims.UNKNOWN;
+
+		if (jwtExpiresAt == JwtClaims.UNKNOWN) {
+			return expiresAt;
+		}
+		if (expiresAt == CachedToken.UNKNOWN_EXPIRY) {
+			return jwtExpiresAt;
+		}
+		return Math.min(expiresAt, jwtExpiresAt);
+	}
+
+
+	/**
+	 * Cache an already built entry.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @param cached <i>CachedToken</i> entry to cache
+	 * @return <i>CachedToken</i> the cached entry
+	 */
+	public CachedToken put(TokenKey key, CachedToken cached) {
+		if (tokens.put(key, cached) == null && tokens.size() > maxSize) {
+			evict(key);
+		}
+		return cached;
+	}
+
+
+	/**
+	 * Remove cached token.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 */
+	public void invalidate(TokenKey key) {
+		tokens.remove(key);
+	}
+
+
+	/**
+	 * Remove token, unless it was cached after a point in time. Used when a token is rejected by the receiver, where
+	 * the token may already have been replaced by one not sent yet.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @param cachedBeforeMillis <i>long</i> only a token cached before this time is removed
+	 * @return <i>CachedToken</i> the removed entry, or null if nothing was removed
+	 */
+	public CachedToken invalidate(TokenKey key, long cachedBeforeMillis) {
+		CachedToken cached = tokens.get(key);
+
+		if (cached != null && cached.getCachedAtMillis() < cachedBeforeMillis && tokens.remove(key, cached)) {
+			return cached;
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * @return <i>int</i> number of cached tokens
+	 */
+	public int size() {
+		return tokens.size();
+	}
+
+
+	/**
+	 * @return <i>long</i> number of tokens evicted because the cache was full
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+
+	/**
+	 * Bring cache back within its bound. Only runs when more credentials are in use than the bound allows.
+	 * @param added <i>TokenKey</i> of the token just added, never evicted
+	 */
+	private synchronized void evict(TokenKey added) {
+		long now = System.currentTimeMillis();
+
+		// Expired tokens first, they can not be used anyway
+		for (Map.Entry<TokenKey, CachedToken> entry : tokens.entrySet()) {
+			if (!entry.getValue().isValid(now, 0) && tokens.remove(entry.getKey(), entry.getValue())) {
+				evictions.increment();
+			}
+		}
+
+		while (tokens.size() > maxSize) {
+			Map.Entry<TokenKey, CachedToken> victim = findVictim(added);
+			if (victim == null) {
+				return;
+			}
+			if (tokens.remove(victim.getKey(), victim.getValue())) {
+				evictions.increment();
+			}
+		}
+	}
+
+
+	/**
+	 * Find the token expiring first among the least recently used tokens.
+	 * @param added <i>TokenKey</i> of the token just added, never evicted
+	 * @return <i>Map.Entry</i> to evict, or null if there is nothing to evict
+	 */
+	private Map.Entry<TokenKey, CachedToken> findVictim(TokenKey added) {
+		List<Map.Entry<TokenKey, CachedToken>> candidates = new ArrayList<Map.Entry<TokenKey, CachedToken>>(EVICTION_CANDIDATES + 1);
+
+		// Keep the least recently used entries, ordered by last access
+		for (Map.Entry<TokenKey, CachedToken> entry : tokens.entrySet()) {
+			if (entry.getKey().equals(added)) {
+				continue;
+			}
+
+			long lastAccess = entry.getValue().getLastAccessMillis();
+			int count = candidates.size();
+			if (count == EVICTION_CANDIDATES && lastAccess >= candidates.get(count - 1).getValue().getLastAccessMillis()) {
+				continue;
+			}
+
+			int i = count;
+			while (i > 0 && candidates.get(i - 1).getValue().getLastAccessMillis() > lastAccess) {
+				i--;
+			}
+			candidates.add(i, entry);
+			if (candidates.size() > EVICTION_CANDIDATES) {
+				candidates.remove(EVICTION_CANDIDATES);
+			}
+		}
+
+		Map.Entry<TokenKey, CachedToken> victim = null;
+		for (Map.Entry<TokenKey, CachedToken> candidate : candidates) {
+			if (victim == null || candidate.getValue().getExpiresAtMillis() < victim.getValue().getExpiresAtMillis()) {
+				victim = candidate;
+			}
+		}
+		return victim;
+	}
+
+
+	@Override
+	public CachedToken load(TokenKey key) {
+		return getEntry(key);
+	}
+
+
+	@Override
+	public void store(TokenKey key, CachedToken token) {
+		put(key, token);
+	}
+
+
+	@Override
+	public void remove(TokenKey key) {
+		invalidate(key);
+	}
+
+
+	@Override
+	public String tryAcquireLease(TokenKey key, long leaseMillis) {
+		// Requests within the JVM are already coalesced by InFlightRequests
+		return LOCAL_LEASE;
+	}
+
+
+	@Override
+	public void releaseLease(TokenKey key, String leaseId) {
+	}
+
+
+	/**
+	 * Parse a number of seconds as returned by the authentication server.
+	 * @param seconds <i>String</i> raw value
+	 * @return <i>long</i> seconds, or -1 if value is missing or not a number
+	 */
+	static long parseSeconds(String seconds) {
+		if (seconds == null) {
+			return -1;
+		}
+
+		try {
+			return Long.parseLong(seconds.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
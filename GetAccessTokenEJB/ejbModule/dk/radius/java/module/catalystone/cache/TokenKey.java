@@ -0,0 +1,84 @@
+package dk.radius.java.module.catalystone.cache;
+
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Identifies a set of credentials on an authentication server. Tokens are cached and shared per key.
+ */
+public final class TokenKey {
+	private final String authenticationUrl;
+	private final String clientId;
+	private final String grantType;
+	private final String apiVersion;
+	private final int hash;
+
+
+	public TokenKey(String authenticationUrl, String clientId, String grantType, String apiVersion) {
+		this.authenticationUrl = authenticationUrl;
+		this.clientId = clientId;
+		this.grantType = grantType;
+		this.apiVersion = apiVersion;
+
+		int h = authenticationUrl.hashCode();
+		h = 31 * h + clientId.hashCode();
+		h = 31 * h + grantType.hashCode();
+		h = 31 * h + apiVersion.hashCode();
+		this.hash = h;
+	}
+
+
+	/**
+	 * Create key from validated module parameters.
+	 * @param ac <i>DO_Authentication</i> validated module parameters
+	 * @return <i>TokenKey</i> for the credentials set in adapter module
+	 */
+	public static TokenKey of(DO_Authentication ac) {
+		return new TokenKey(ac.getAuthenticationUrl(), ac.getClientId(), ac.getGrantType(), ac.getApiVersion());
+	}
+
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TokenKey)) {
+			return false;
+		}
+		TokenKey other = (TokenKey) obj;
+		return hash == other.hash
+				&& authenticationUrl.equals(other.authenticationUrl)
+				&& clientId.equals(other.clientId)
+				&& grantType.equals(other.grantType)
+				&& apiVersion.equals(other.apiVersion);
+	}
+
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+
+	@Override
+	public String toString() {
+		return authenticationUrl + " (clientId: " + clientId + ", grantType: " + grantType + ", apiVersion: " + apiVersion + ")";
+	}
+
+
+	/*
+	 * Getters
+	 */
+	public String getAuthenticationUrl() {
+		return authenticationUrl;
+	}
+	public String getClientId() {
+		return clientId;
+	}
+	public String getGrantType() {
+		return grantType;
+	}
+	public String getApiVersion() {
+		return apiVersion;
+	}
+}
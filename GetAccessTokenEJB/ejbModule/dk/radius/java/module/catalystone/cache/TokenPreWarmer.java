@@ -0,0 +1,243 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import dk.radius.java.module.catalystone.AccessTokenException;
+import dk.radius.java.module.catalystone.client.Credentials;
+import dk.radius.java.module.catalystone.client.TokenClient;
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+import dk.radius.java.module.catalystone.pojo.ValidationException;
+
+/**
+ * Requests tokens for a list of credentials in the background when the module starts, so the first messages after a
+ * deployment or restart find a cached token and an open connection to the authentication server.
+ * <p>
+ * Enabled by the JVM system property "dk.radius.catalystone.prewarmFile", pointing to a json array of credential sets
+ * using the module parameter names, eg.
+ * <pre>
+ * [{"authenticationUrl": "https://...", "clientId": "...", "clientSecret": "...", "grantType": "...", "apiVersion": "..."}]
+ * </pre>
+ * The optional parameters "tokenExpiryMargin", "refreshAhead", "connectTimeout", "readTimeout", "clockSkew",
+ * "tokenStore" and "tokenStoreDirectory" can be set as well and should match the channel, other keys are ignored.
+ * If "dk.radius.catalystone.prewarmInterval" is set (seconds), the list is checked again with that interval and
+ * missing or expiring tokens are requested.
+ * Entries failing validation of these parameters are skipped and logged.
+ * The file contains client secrets and must only be readable by the user running the server.
+ */
+public final class TokenPreWarmer {
+	private static final String PREWARM_FILE_PROPERTY = "dk.radius.catalystone.prewarmFile";
+	private static final String PREWARM_INTERVAL_PROPERTY = "dk.radius.catalystone.prewarmInterval";
+
+	private static final Logger LOGGER = Logger.getLogger(TokenPreWarmer.class.getName());
+
+	private static final TokenPreWarmer INSTANCE = new TokenPreWarmer();
+
+	private final Gson gson = new Gson();
+	private ScheduledExecutorService scheduler;
+
+
+	private TokenPreWarmer() {
+	}
+
+
+	public static TokenPreWarmer getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Start pre-warming in the background, if enabled. Has no effect if already started.
+	 */
+	public synchronized void start() {
+		final String file = System.getProperty(PREWARM_FILE_PROPERTY);
+
+		if (file == null || file.equals("") || scheduler != null) {
+			return;
+		}
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "GetAccessToken-TokenPreWarmer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				preWarm(file);
+			}
+		};
+
+		long interval = Long.getLong(PREWARM_INTERVAL_PROPERTY, 0L);
+		if (interval > 0) {
+			scheduler.scheduleWithFixedDelay(task, 0, interval, TimeUnit.SECONDS);
+		} else {
+			scheduler.execute(task);
+		}
+	}
+
+
+	/**
+	 * Stop pre-warming, called when the module is undeployed. A pre-warm in progress is interrupted.
+	 */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+
+	private void preWarm(String file) {
+		PreWarmEntry[] entries = readEntries(file);
+
+		if (entries == null) {
+			return;
+		}
+
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i] == null || Thread.currentThread().isInterrupted()) {
+				continue;
+			}
+
+			DO_Authentication ac = entries[i].toConfig();
+			try {
+				ac.validateTokenRequest();
+				preWarm(ac);
+			} catch (ValidationException e) {
+				skipped(file, i, ac, e.getMessage());
+			} catch (AccessTokenException e) {
+				// Best effort, the first message requests the token instead
+				skipped(file, i, ac, e.getMessage());
+			} catch (RuntimeException e) {
+				// Must not stop the remaining entries or cancel the following runs
+				skipped(file, i, ac, e.toString());
+			}
+		}
+	}
+
+
+	private void skipped(String file, int index, DO_Authentication ac, String reason) {
+		LOGGER.log(Level.WARNING, "Pre-warm entry " + index + " in " + file + " skipped (clientId: " + ac.getClientId()
+				+ ", authenticationUrl: " + ac.getAuthenticationUrl() + "): " + reason);
+	}
+
+
+	/**
+	 * Read credential sets from the pre-warm file.
+	 * @param file <i>String</i> path of json file
+	 * @return <i>PreWarmEntry[]</i> or null if the file can not be read
+	 */
+	private PreWarmEntry[] readEntries(String file) {
+		Reader reader = null;
+		try {
+			reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+			return gson.fromJson(reader, PreWarmEntry[].class);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Pre-warm file " + file + " can not be read: " + e);
+			return null;
+		} catch (JsonParseException e) {
+			LOGGER.log(Level.WARNING, "Pre-warm file " + file + " is not a json array of credential sets: " + e.getMessage());
+			return null;
+		} catch (RuntimeException e) {
+			// Invalid path
+			LOGGER.log(Level.WARNING, "Pre-warm file " + file + " can not be read: " + e);
+			return null;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// Nothing more to release
+				}
+			}
+		}
+	}
+
+
+	private void preWarm(DO_Authentication ac) throws AccessTokenException {
+		Credentials credentials = Credentials.of(ac);
+		TokenKey key = credentials.getKey();
+		TokenCache cache = TokenCache.getInstance();
+		long marginSeconds = ac.getTokenExpiryMarginSeconds();
+
+		if (cache.getEntry(key) != null && cache.getEntry(key).isValid(System.currentTimeMillis(), marginSeconds * 1000L)) {
+			return;
+		}
+
+		// Token published by another node
+		TokenStore store = TokenStores.forConfig(ac);
+		if (TokenStores.isShared(store)) {
+			CachedToken published = store.load(key);
+			if (published != null && published.isValid(System.currentTimeMillis(), marginSeconds * 1000L)) {
+				cache.put(key, published);
+				return;
+			}
+		}
+
+		DO_AccessToken at = TokenClient.getInstance().requestToken(credentials);
+		CachedToken entry = cache.put(key, at, ac.getClockSkewSeconds());
+
+		if (entry != null) {
+			if (TokenStores.isShared(store)) {
+				store.store(key, entry);
+			}
+			if (ac.isRefreshAheadEnabled()) {
+				TokenRefresher.getInstance().schedule(credentials, entry, marginSeconds, ac.getRefreshAheadSeconds());
+			}
+		}
+	}
+
+
+	/**
+	 * Credential set of the pre-warm file, bound by gson using the documented keys.
+	 */
+	private static final class PreWarmEntry {
+		private String authenticationUrl;
+		private String clientId;
+		private String clientSecret;
+		private String grantType;
+		private String apiVersion;
+		private String tokenExpiryMargin;
+		private String refreshAhead;
+		private String connectTimeout;
+		private String readTimeout;
+		private String clockSkew;
+		private String tokenStore;
+		private String tokenStoreDirectory;
+
+		private DO_Authentication toConfig() {
+			DO_Authentication ac = new DO_Authentication();
+			ac.setAuthenticationUrl(authenticationUrl);
+			ac.setClientId(clientId);
+			ac.setClientSecret(clientSecret);
+			ac.setGrantType(grantType);
+			ac.setApiVersion(apiVersion);
+			ac.setTokenExpiryMargin(tokenExpiryMargin);
+			ac.setRefreshAhead(refreshAhead);
+			ac.setConnectTimeout(connectTimeout);
+			ac.setReadTimeout(readTimeout);
+			ac.setClockSkew(clockSkew);
+			ac.setTokenStore(tokenStore);
+			ac.setTokenStoreDirectory(tokenStoreDirectory);
+			return ac;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import dk.radius.java.module.catalystone.AccessTokenException;
+import dk.radius.java.module.catalystone.client.Credentials;
+import dk.radius.java.module.catalystone.client.TokenClient;
+import dk.radius.java.module.catalystone.metrics.TokenMetrics;
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+
+/**
+ * Renews cached tokens in the background shortly before they would stop being handed out,
+ * so messages do not have to wait for the authentication server when a token rolls over.
+ * <p>
+ * The "refresh_token" grant is used while the refresh token is valid, otherwise a new token is requested
+ * using the grant type set in adapter module. Tokens that have not been used by any message since they were
+ * cached are not renewed, so channels that are no longer in use stop generating authentication traffic.
+ */
+public final class TokenRefresher {
+	private static final TokenRefresher INSTANCE = new TokenRefresher();
+
+	private final ConcurrentMap<TokenKey, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<TokenKey, ScheduledFuture<?>>();
+	private ScheduledExecutorService scheduler;
+
+
+	private TokenRefresher() {
+	}
+
+
+	public static TokenRefresher getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Schedule renewal of a cached token.
+	 * @param credentials <i>Credentials</i> the token was issued for
+	 * @param cached <i>CachedToken</i> token to renew
+	 * @param marginSeconds <i>long</i> margin before expiry where the cache stops handing out the token
+	 * @param refreshAheadSeconds <i>long</i> how long before the margin is reached the token is renewed
+	 */
+	public void schedule(final Credentials credentials, final CachedToken cached, final long marginSeconds, final long refreshAheadSeconds) {
+		long refreshAt = cached.getExpiresAtMillis() - (marginSeconds + refreshAheadSeconds) * 1000L;
+		long delay = Math.max(0, refreshAt - System.currentTimeMillis());
+
+		ScheduledExecutorService scheduler = getScheduler();
+		if (scheduler == null) {
+			// Stopped, messages request tokens when they expire
+			return;
+		}
+
+		ScheduledFuture<?> future;
+		try {
+			future = scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					refresh(credentials, cached, marginSeconds, refreshAheadSeconds);
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// Stopped meanwhile
+			return;
+		}
+
+		ScheduledFuture<?> previous = scheduled.put(credentials.getKey(), future);
+		if (previous != null) {
+			previous.cancel(false);
+		}
+	}
+
+
+	/**
+	 * Start renewing tokens, called when the module is deployed.
+	 */
+	public synchronized void start() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "GetAccessToken-TokenRefresher");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+
+	/**
+	 * Stop renewing tokens and cancel all scheduled renewals, called when the module is undeployed.
+	 */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		scheduled.clear();
+	}
+
+
+	private synchronized ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+
+	private void refresh(Credentials credentials, CachedToken cached, long marginSeconds, long refreshAheadSeconds) {
+		TokenKey key = credentials.getKey();
+		TokenCache cache = TokenCache.getInstance();
+
+		// Stop if the entry was replaced or is no longer used by any message
+		if (cache.getEntry(key) != cached || !cached.isUsed()) {
+			scheduled.remove(key);
+			return;
+		}
+
+		// With a shared token store only one node renews, the others load the renewed token from the store
+		TokenStore store = TokenStores.forConfig(credentials.getConfig());
+		String leaseId = store.tryAcquireLease(key, credentials.getConfig().getTokenRequestWaitTimeoutSeconds() * 1000L);
+		if (leaseId == null) {
+			scheduled.remove(key);
+			return;
+		}
+
+		CachedToken renewed;
+		try {
+			renewed = renew(credentials, cached);
+
+			if (renewed != null && TokenStores.isShared(store)) {
+				store.store(key, renewed);
+			}
+		} catch (AccessTokenException e) {
+			// Leave the current token in place, messages will request a new one when it expires
+			scheduled.remove(key);
+			return;
+		} finally {
+			store.releaseLease(key, leaseId);
+		}
+
+		if (renewed != null) {
+			TokenMetrics.getInstance().forEndpoint(key.getAuthenticationUrl()).recordRefreshAheadRenewal();
+			schedule(credentials, renewed, marginSeconds, refreshAheadSeconds);
+		} else {
+			scheduled.remove(key);
+		}
+	}
+
+
+	private CachedToken renew(Credentials credentials, CachedToken cached) throws AccessTokenException {
+		TokenClient client = TokenClient.getInstance();
+		TokenKey key = credentials.getKey();
+
+		if (cached.canRefresh(System.currentTimeMillis())) {
+			String refreshToken = cached.getAccessToken().refreshToken;
+			try {
+				DO_AccessToken at = client.refreshToken(credentials, refreshToken);
+
+				// Keep using the current refresh token if the server did not issue a new one
+				if (at.refreshToken == null) {
+					at.refreshToken = refreshToken;
+					at.refreshTokenExpiresIn = remainingSeconds(cached.getRefreshTokenExpiresAtMillis());
+				}
+				return TokenCache.getInstance().put(key, at, credentials.getConfig().getClockSkewSeconds());
+			} catch (AccessTokenException e) {
+				// Refresh token rejected, fall back to requesting a new token
+			}
+		}
+
+		return TokenCache.getInstance().put(key, client.requestToken(credentials), credentials.getConfig().getClockSkewSeconds());
+	}
+
+
+	private String remainingSeconds(long expiresAtMillis) {
+		if (expiresAtMillis == CachedToken.UNKNOWN_EXPIRY) {
+			return null;
+		}
+		return String.valueOf((expiresAtMillis - System.currentTimeMillis()) / 1000L);
+	}
+}
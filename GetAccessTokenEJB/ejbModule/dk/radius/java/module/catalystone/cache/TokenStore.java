@@ -0,0 +1,51 @@
+package dk.radius.java.module.catalystone.cache;
+
+/**
+ * Storage of access tokens that can be shared between server nodes.
+ * <p>
+ * Every node keeps its tokens in the local <i>TokenCache</i>. On a local cache miss the configured store is asked for
+ * a token published by another node, and tokens requested by this node are published to it. A lease makes sure only
+ * one node at a time requests a new token for a key; the other nodes wait for it to be published.
+ * <p>
+ * Implementations must be thread safe and must not throw on storage errors: a failing store behaves like an
+ * empty store that always grants the lease, so the module falls back to requesting tokens itself.
+ */
+public interface TokenStore {
+
+	/**
+	 * Get stored token.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @return <i>CachedToken</i> or null if nothing is stored
+	 */
+	CachedToken load(TokenKey key);
+
+	/**
+	 * Store token, replacing any token stored for the key.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 * @param token <i>CachedToken</i> token to store
+	 */
+	void store(TokenKey key, CachedToken token);
+
+	/**
+	 * Remove stored token.
+	 * @param key <i>TokenKey</i> credentials the token was issued for
+	 */
+	void remove(TokenKey key);
+
+	/**
+	 * Try to become the only node requesting a new token for the key.
+	 * @param key <i>TokenKey</i> credentials the token is requested for
+	 * @param leaseMillis <i>long</i> time after which the lease expires if it is not released
+	 * @return <i>String</i> id of the acquired lease, to be passed to <i>releaseLease</i>, or null if another node
+	 * holds the lease
+	 */
+	String tryAcquireLease(TokenKey key, long leaseMillis);
+
+	/**
+	 * Release a lease. Has no effect if the lease has expired and was taken over by another node or another
+	 * request of this node meanwhile.
+	 * @param key <i>TokenKey</i> credentials the token was requested for
+	 * @param leaseId <i>String</i> id returned by <i>tryAcquireLease</i>
+	 */
+	void releaseLease(TokenKey key, String leaseId);
+}
@@ -0,0 +1,54 @@
+package dk.radius.java.module.catalystone.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Resolves the <i>TokenStore</i> set in adapter module.
+ */
+public final class TokenStores {
+	public static final String TOKEN_STORE_MEMORY = "memory";
+	public static final String TOKEN_STORE_FILE = "file";
+
+	private static final ConcurrentMap<String, FileTokenStore> FILE_STORES = new ConcurrentHashMap<String, FileTokenStore>();
+
+
+	private TokenStores() {
+	}
+
+
+	/**
+	 * Get token store set in adapter module.
+	 * @param ac <i>DO_Authentication</i> validated module parameters
+	 * @return <i>TokenStore</i>, the local <i>TokenCache</i> unless a shared store is set
+	 */
+	public static TokenStore forConfig(DO_Authentication ac) {
+		if (!TOKEN_STORE_FILE.equals(ac.getTokenStore())) {
+			return TokenCache.getInstance();
+		}
+
+		String directory = ac.getTokenStoreDirectory();
+		FileTokenStore store = FILE_STORES.get(directory);
+
+		if (store == null) {
+			FileTokenStore created = new FileTokenStore(directory);
+			store = FILE_STORES.putIfAbsent(directory, created);
+			if (store == null) {
+				store = created;
+			}
+		}
+
+		return store;
+	}
+
+
+	/**
+	 * @param store <i>TokenStore</i> to check
+	 * @return boolean true if <b>store</b> is shared with other nodes
+	 */
+	public static boolean isShared(TokenStore store) {
+		return store != TokenCache.getInstance();
+	}
+}
@@ -0,0 +1,119 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.util.concurrent.TimeUnit;
+
+import dk.radius.java.module.catalystone.metrics.EndpointMetrics;
+import dk.radius.java.module.catalystone.metrics.RollingLatencyHistogram;
+import dk.radius.java.module.catalystone.metrics.TokenMetrics;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Connect and read timeouts of a request to the authentication server.
+ * <p>
+ * If "adaptiveTimeoutFactor" is set in adapter module, each timeout is the 99th percentile of the recent latency of
+ * the authentication server multiplied by the factor (eg. 1.5), kept between "adaptiveTimeoutMin" and the configured
+ * "connectTimeout" and "readTimeout". Until enough requests have been observed, the configured timeouts are used.
+ * Both timeouts are further limited to the time left until the deadline of the request, if it has one.
+ */
+public final class AdaptiveTimeouts {
+	/** Deadline of a request without time budget */
+	public static final long NO_DEADLINE = Long.MIN_VALUE;
+
+	// Minimum number of recent values before the percentile is trusted
+	private static final long MIN_SAMPLES = 20;
+	private static final double QUANTILE = 0.99;
+
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+	private final boolean adaptive;
+
+
+	private AdaptiveTimeouts(int connectTimeoutMillis, int readTimeoutMillis, boolean adaptive) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+		this.adaptive = adaptive;
+	}
+
+
+	/**
+	 * Get timeouts for the next request without deadline.
+	 * @param credentials <i>Credentials</i> set in adapter module
+	 * @return <i>AdaptiveTimeouts</i> timeouts to use
+	 */
+	public static AdaptiveTimeouts forRequest(Credentials credentials) {
+		return forRequest(credentials, NO_DEADLINE);
+	}
+
+
+	/**
+	 * Get timeouts for the next request.
+	 * @param credentials <i>Credentials</i> set in adapter module
+	 * @param deadlineNanos <i>long</i> <i>System.nanoTime</i> the request must be completed by, or <b>NO_DEADLINE</b>
+	 * @return <i>AdaptiveTimeouts</i> timeouts to use
+	 */
+	public static AdaptiveTimeouts forRequest(Credentials credentials, long deadlineNanos) {
+		DO_Authentication config = credentials.getConfig();
+		int connectTimeout = config.getConnectTimeoutMillis();
+		int readTimeout = config.getReadTimeoutMillis();
+		boolean adaptive = config.isAdaptiveTimeoutEnabled();
+
+		if (adaptive) {
+			EndpointMetrics metrics = TokenMetrics.getInstance().forEndpoint(credentials.getAuthenticationUrl());
+			double factor = config.getAdaptiveTimeoutFactorValue();
+			long min = config.getAdaptiveTimeoutMinMillis();
+
+			connectTimeout = adapt(metrics.getRecentConnectLatency(), factor, min, connectTimeout);
+			readTimeout = adapt(metrics.getRecentResponseLatency(), factor, min, readTimeout);
+		}
+
+		if (deadlineNanos != NO_DEADLINE) {
+			// At least 1 ms, a timeout of 0 means wait forever
+			long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+			connectTimeout = limit(connectTimeout, remaining);
+			readTimeout = limit(readTimeout, remaining);
+		}
+
+		return new AdaptiveTimeouts(connectTimeout, readTimeout, adaptive);
+	}
+
+
+	/**
+	 * Limit a timeout, where 0 means no timeout.
+	 */
+	private static int limit(int timeoutMillis, long maxMillis) {
+		if (timeoutMillis == 0) {
+			return (int) Math.min(Integer.MAX_VALUE, maxMillis);
+		}
+		return (int) Math.min(timeoutMillis, maxMillis);
+	}
+
+
+	private static int adapt(RollingLatencyHistogram latency, double factor, long minMillis, int maxMillis) {
+		if (latency.count() < MIN_SAMPLES) {
+			return maxMillis;
+		}
+
+		long millis = (long) Math.min(Long.MAX_VALUE, Math.ceil(latency.percentileMicros(QUANTILE) * factor / 1000.0));
+		return (int) Math.max(Math.min(minMillis, maxMillis), Math.min(millis, maxMillis));
+	}
+
+
+	/*
+	 * Getters
+	 */
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+
+	@Override
+	public String toString() {
+		return "connect " + connectTimeoutMillis + " ms, read " + readTimeoutMillis + " ms" + (adaptive ? " (adaptive)" : "");
+	}
+}
@@ -0,0 +1,64 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent requests per authentication server url, so a slow authentication server can not
+ * occupy all worker threads of the adapter engine.
+ * <p>
+ * There is one bulkhead per url, shared by all channels using it. When a request brings another "maxConcurrentRequests"
+ * than the bulkhead was last sized for, the bulkhead is resized. A smaller limit takes effect as requests in progress
+ * complete, as their slots are not handed out again until the number of requests is below the new limit.
+ */
+public final class Bulkhead {
+	private static final ConcurrentMap<String, Bulkhead> BULKHEADS = new ConcurrentHashMap<String, Bulkhead>();
+
+	private final ResizableSemaphore permits;
+
+
+	private Bulkhead(int maxConcurrentRequests) {
+		this.permits = new ResizableSemaphore(maxConcurrentRequests, true);
+	}
+
+
+	/**
+	 * Get bulkhead of an authentication server, resized to <b>maxConcurrentRequests</b> if its limit differs.
+	 * @param authenticationUrl <i>String</i> url of authentication server
+	 * @param maxConcurrentRequests <i>int</i> maximum number of concurrent requests
+	 * @return <i>Bulkhead</i> shared by all requests to the url
+	 */
+	public static Bulkhead forEndpoint(String authenticationUrl, int maxConcurrentRequests) {
+		Bulkhead bulkhead = BULKHEADS.get(authenticationUrl);
+
+		if (bulkhead == null) {
+			Bulkhead created = new Bulkhead(maxConcurrentRequests);
+			bulkhead = BULKHEADS.putIfAbsent(authenticationUrl, created);
+			if (bulkhead == null) {
+				return created;
+			}
+		}
+
+		bulkhead.permits.resize(maxConcurrentRequests);
+
+		return bulkhead;
+	}
+
+
+	/**
+	 * Wait for a free slot.
+	 * @param waitMillis <i>long</i> maximum time to wait
+	 * @return boolean true if a slot was acquired, it must then be returned with <i>release</i>
+	 * @throws InterruptedException
+	 */
+	public boolean tryAcquire(long waitMillis) throws InterruptedException {
+		return permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+	}
+
+
+	public void release() {
+		permits.release();
+	}
+
+}
@@ -0,0 +1,100 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker per authentication server url.
+ * <p>
+ * After a number of consecutive failures the breaker opens and requests are rejected without contacting the
+ * authentication server. When the open time has passed a single probe request is let through (half-open):
+ * if it succeeds the breaker closes, otherwise it opens again.
+ */
+public final class CircuitBreaker {
+	private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	private static final long CLOSED = 0;
+
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicBoolean probeInProgress = new AtomicBoolean();
+	private volatile long openedAtMillis = CLOSED;
+
+
+	private CircuitBreaker() {
+	}
+
+
+	/**
+	 * Get circuit breaker of an authentication server.
+	 * @param authenticationUrl <i>String</i> url of authentication server
+	 * @return <i>CircuitBreaker</i> shared by all requests to the url
+	 */
+	public static CircuitBreaker forEndpoint(String authenticationUrl) {
+		CircuitBreaker breaker = BREAKERS.get(authenticationUrl);
+
+		if (breaker == null) {
+			CircuitBreaker created = new CircuitBreaker();
+			breaker = BREAKERS.putIfAbsent(authenticationUrl, created);
+			if (breaker == null) {
+				breaker = created;
+			}
+		}
+
+		return breaker;
+	}
+
+
+	/**
+	 * Check if a request may be sent.
+	 * @param openMillis <i>long</i> time the breaker stays open before a probe request is let through
+	 * @return boolean true if request may be sent, the outcome must then be reported with <i>onSuccess</i> or <i>onFailure</i>
+	 */
+	public boolean tryAcquire(long openMillis) {
+		long openedAt = openedAtMillis;
+
+		if (openedAt == CLOSED) {
+			return true;
+		}
+
+		if (System.currentTimeMillis() < openedAt + openMillis) {
+			return false;
+		}
+
+		// Half-open, only one probe request at a time
+		return probeInProgress.compareAndSet(false, true);
+	}
+
+
+	/**
+	 * Report that the authentication server responded.
+	 */
+	public void onSuccess() {
+		consecutiveFailures.set(0);
+		openedAtMillis = CLOSED;
+		probeInProgress.set(false);
+	}
+
+
+	/**
+	 * Report that the authentication server was unavailable.
+	 * @param failureThreshold <i>int</i> number of consecutive failures that opens the breaker
+	 */
+	public void onFailure(int failureThreshold) {
+		if (probeInProgress.compareAndSet(true, false)) {
+			// Probe failed, open again
+			openedAtMillis = System.currentTimeMillis();
+			return;
+		}
+
+		if (consecutiveFailures.incrementAndGet() >= failureThreshold && openedAtMillis == CLOSED) {
+			openedAtMillis = System.currentTimeMillis();
+		}
+	}
+
+
+	public boolean isOpen() {
+		return openedAtMillis != CLOSED;
+	}
+}
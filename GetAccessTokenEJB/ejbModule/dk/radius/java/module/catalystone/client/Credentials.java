@@ -0,0 +1,61 @@
+package dk.radius.java.module.catalystone.client;
+
+import dk.radius.java.module.catalystone.cache.TokenKey;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Credentials and connection settings needed to request an "AccessToken" from the authentication server.
+ * Wraps validated module parameters, which are not modified after validation.
+ */
+public final class Credentials {
+	private final TokenKey key;
+	private final DO_Authentication config;
+
+
+	public Credentials(TokenKey key, DO_Authentication config) {
+		this.key = key;
+		this.config = config;
+	}
+
+
+	/**
+	 * Create credentials from validated module parameters.
+	 * @param ac <i>DO_Authentication</i> validated module parameters
+	 * @return <i>Credentials</i> set in adapter module
+	 */
+	public static Credentials of(DO_Authentication ac) {
+		return new Credentials(TokenKey.of(ac), ac);
+	}
+
+
+	/*
+	 * Getters
+	 */
+	public TokenKey getKey() {
+		return key;
+	}
+	public DO_Authentication getConfig() {
+		return config;
+	}
+	public String getAuthenticationUrl() {
+		return key.getAuthenticationUrl();
+	}
+	public String getClientId() {
+		return key.getClientId();
+	}
+	public String getClientSecret() {
+		return config.getClientSecret();
+	}
+	public String getGrantType() {
+		return key.getGrantType();
+	}
+	public String getApiVersion() {
+		return key.getApiVersion();
+	}
+	public int getConnectTimeoutMillis() {
+		return config.getConnectTimeoutMillis();
+	}
+	public int getReadTimeoutMillis() {
+		return config.getReadTimeoutMillis();
+	}
+}
@@ -0,0 +1,201 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import dk.radius.java.module.catalystone.AccessTokenException;
+import dk.radius.java.module.catalystone.metrics.EndpointMetrics;
+import dk.radius.java.module.catalystone.metrics.RollingLatencyHistogram;
+import dk.radius.java.module.catalystone.metrics.TokenMetrics;
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Sends a second, hedged, token request if the first has not answered within the configured percentile of the
+ * token request latency of the authentication server during the last minutes. The first successful response is used.
+ * <p>
+ * The number of hedged requests in progress per authentication server url is capped, so a slow server does not
+ * receive double load. Hedging starts once enough recent requests have been observed to calculate the percentile,
+ * resetting the statistics does not affect it.
+ */
+final class HedgedRequests {
+	// Minimum number of observed requests before the percentile is trusted
+	private static final long MIN_SAMPLES = 20;
+
+	private static final HedgedRequests INSTANCE = new HedgedRequests();
+
+	private final ConcurrentMap<String, ResizableSemaphore> hedgePermits = new ConcurrentHashMap<String, ResizableSemaphore>();
+	private ExecutorService executor;
+
+
+	private HedgedRequests() {
+	}
+
+
+	static HedgedRequests getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Start the threads sending hedged requests, called when the module is deployed.
+	 */
+	synchronized void start() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "GetAccessToken-HedgedRequest");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+
+	/**
+	 * Stop the threads sending hedged requests, called when the module is undeployed. Requests in progress are interrupted.
+	 */
+	synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+
+	private synchronized ExecutorService getExecutor() {
+		return executor;
+	}
+
+
+	/**
+	 * Perform request, hedging it if it is slow. Without started threads the request is sent without hedging.
+	 * @param credentials <i>Credentials</i> set in adapter module
+	 * @param request <i>Callable</i> performing a single token request
+	 * @return <i>DO_AccessToken</i> first successful response
+	 * @throws AccessTokenException if all requests sent failed
+	 */
+	DO_AccessToken request(Credentials credentials, Callable<DO_AccessToken> request) throws AccessTokenException {
+		DO_Authentication config = credentials.getConfig();
+		EndpointMetrics metrics = TokenMetrics.getInstance().forEndpoint(credentials.getAuthenticationUrl());
+
+		RollingLatencyHistogram latency = metrics.getRecentTokenRequestLatency();
+
+		ExecutorService executor = getExecutor();
+		if (executor == null || latency.count() < MIN_SAMPLES) {
+			return call(request);
+		}
+
+		long delayMicros = latency.percentileMicros(config.getHedgePercentileValue() / 100.0);
+		Semaphore permits = getPermits(credentials.getAuthenticationUrl(), config.getHedgeMaxInFlightValue());
+		CompletionService<DO_AccessToken> completion = new ExecutorCompletionService<DO_AccessToken>(executor);
+
+		try {
+			try {
+				completion.submit(request);
+			} catch (RejectedExecutionException e) {
+				// Stopped meanwhile
+				return call(request);
+			}
+			int outstanding = 1;
+
+			Future<DO_AccessToken> done = completion.poll(delayMicros, TimeUnit.MICROSECONDS);
+			if (done == null && permits.tryAcquire()) {
+				try {
+					completion.submit(releasing(request, permits));
+					outstanding++;
+					metrics.recordHedgedRequest();
+				} catch (RejectedExecutionException e) {
+					permits.release();
+				}
+			}
+
+			AccessTokenException failure = null;
+			while (outstanding > 0) {
+				if (done == null) {
+					done = completion.take();
+				}
+				outstanding--;
+
+				try {
+					return done.get();
+				} catch (ExecutionException e) {
+					failure = unwrap(e);
+				}
+				done = null;
+			}
+			throw failure;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AccessTokenException("Interrupted while waiting for AccessToken from: " + credentials.getAuthenticationUrl());
+		}
+	}
+
+
+	private DO_AccessToken call(Callable<DO_AccessToken> request) throws AccessTokenException {
+		try {
+			return request.call();
+		} catch (AccessTokenException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new AccessTokenException("Error requesting AccessToken: " + e);
+		}
+	}
+
+
+	private Callable<DO_AccessToken> releasing(final Callable<DO_AccessToken> request, final Semaphore permits) {
+		return new Callable<DO_AccessToken>() {
+			@Override
+			public DO_AccessToken call() throws Exception {
+				try {
+					return request.call();
+				} finally {
+					permits.release();
+				}
+			}
+		};
+	}
+
+
+	private AccessTokenException unwrap(ExecutionException e) {
+		if (e.getCause() instanceof AccessTokenException) {
+			return (AccessTokenException) e.getCause();
+		}
+		return new AccessTokenException("Error requesting AccessToken: " + e.getCause());
+	}
+
+
+	/**
+	 * Get hedge permits of an authentication server url, shared by all channels using it. The permits are resized if
+	 * "hedgeMaxInFlight" differs from the value they were last sized for.
+	 */
+	private Semaphore getPermits(String authenticationUrl, int maxInFlight) {
+		ResizableSemaphore permits = hedgePermits.get(authenticationUrl);
+
+		if (permits == null) {
+			ResizableSemaphore created = new ResizableSemaphore(maxInFlight, false);
+			permits = hedgePermits.putIfAbsent(authenticationUrl, created);
+			if (permits == null) {
+				return created;
+			}
+		}
+
+		permits.resize(maxInFlight);
+
+		return permits;
+	}
+}
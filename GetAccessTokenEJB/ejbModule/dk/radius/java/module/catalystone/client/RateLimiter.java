@@ -0,0 +1,80 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of requests per authentication server url.
+ * <p>
+ * The bucket is refilled with "rate" tokens per second and holds at most "burst" tokens. A request finding the bucket
+ * empty reserves the next token and waits for it, unless the wait would be longer than allowed. Reserving keeps
+ * waiting requests in order, and prevents them from all being let through at once when the bucket is refilled.
+ */
+public final class RateLimiter {
+	private static final ConcurrentMap<String, RateLimiter> LIMITERS = new ConcurrentHashMap<String, RateLimiter>();
+
+	/** Returned by <i>reserve</i> when the request must be rejected */
+	public static final long REJECTED = -1;
+
+	// May become negative, when tokens are reserved by waiting requests
+	private double tokens = Double.NaN;
+	private long lastRefillNanos;
+
+
+	private RateLimiter() {
+	}
+
+
+	/**
+	 * Get rate limiter of an authentication server.
+	 * @param authenticationUrl <i>String</i> url of authentication server
+	 * @return <i>RateLimiter</i> shared by all requests to the url
+	 */
+	public static RateLimiter forEndpoint(String authenticationUrl) {
+		RateLimiter limiter = LIMITERS.get(authenticationUrl);
+
+		if (limiter == null) {
+			RateLimiter created = new RateLimiter();
+			limiter = LIMITERS.putIfAbsent(authenticationUrl, created);
+			if (limiter == null) {
+				limiter = created;
+			}
+		}
+
+		return limiter;
+	}
+
+
+	/**
+	 * Reserve a token for a request.
+	 * @param ratePerSecond <i>double</i> number of tokens added per second
+	 * @param burst <i>int</i> maximum number of tokens in the bucket
+	 * @param maxWaitMillis <i>long</i> maximum time the request may wait for a token
+	 * @return <i>long</i> milliseconds to wait before sending the request, or <b>REJECTED</b>
+	 */
+	public synchronized long reserve(double ratePerSecond, int burst, long maxWaitMillis) {
+		long now = System.nanoTime();
+
+		if (Double.isNaN(tokens)) {
+			tokens = burst;
+		} else {
+			double refill = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1) * ratePerSecond;
+			tokens = Math.min(burst, tokens + refill);
+		}
+		lastRefillNanos = now;
+
+		if (tokens >= 1) {
+			tokens--;
+			return 0;
+		}
+
+		long waitMillis = (long) Math.ceil((1 - tokens) / ratePerSecond * 1000);
+		if (waitMillis > maxWaitMillis) {
+			return REJECTED;
+		}
+
+		tokens--;
+		return waitMillis;
+	}
+}
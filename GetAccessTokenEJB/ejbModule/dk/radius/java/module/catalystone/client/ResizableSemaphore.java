@@ -0,0 +1,48 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * <i>Semaphore</i> whose number of permits follows a configured limit that may change while permits are held.
+ * <p>
+ * Permits held when the limit is lowered stay valid, so available permits may become negative until enough of them
+ * are released.
+ */
+final class ResizableSemaphore extends Semaphore {
+	private static final long serialVersionUID = 1L;
+
+	private volatile int limit;
+
+
+	ResizableSemaphore(int limit, boolean fair) {
+		super(limit, fair);
+		this.limit = limit;
+	}
+
+
+	/**
+	 * Change the number of permits by the difference to the current limit.
+	 * @param newLimit <i>int</i> new maximum number of permits held at the same time
+	 */
+	void resize(int newLimit) {
+		if (limit == newLimit) {
+			return;
+		}
+
+		synchronized (this) {
+			int difference = newLimit - limit;
+
+			if (difference > 0) {
+				release(difference);
+			} else if (difference < 0) {
+				reducePermits(-difference);
+			}
+			limit = newLimit;
+		}
+	}
+
+
+	int getLimit() {
+		return limit;
+	}
+}
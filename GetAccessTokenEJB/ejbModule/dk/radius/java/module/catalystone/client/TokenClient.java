@@ -0,0 +1,441 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonSyntaxException;
+
+import dk.radius.java.module.catalystone.AccessTokenException;
+import dk.radius.java.module.catalystone.metrics.EndpointMetrics;
+import dk.radius.java.module.catalystone.metrics.TokenMetrics;
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+import dk.radius.java.module.catalystone.pojo.DO_AccessTokenError;
+import dk.radius.java.module.catalystone.pojo.DO_Authentication;
+
+/**
+ * Requests "AccessToken" from the authentication server.
+ * A single instance is shared by all module instances and background tasks, so it must not hold per-request state.
+ * <p>
+ * Responses are always read to the end and closed, also on errors, so the underlying connection is returned to the
+ * JVM keep-alive cache and reused by the next request to the same endpoint. The number of idle connections kept per
+ * endpoint is bounded by the JVM system property "http.maxConnections" (default 5).
+ */
+public final class TokenClient {
+	public static final String GRANT_TYPE_REFRESH_TOKEN = "refresh_token";
+
+	// Upper bound of the exponential backoff between retries, "Retry-After" may ask for longer
+	private static final long MAX_RETRY_BACKOFF_MILLIS = 30000;
+
+	private static final TokenClient INSTANCE = new TokenClient();
+
+
+	private TokenClient() {
+	}
+
+
+	public static TokenClient getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Start background threads used for hedged requests, called when the module is deployed.
+	 */
+	public void start() {
+		HedgedRequests.getInstance().start();
+	}
+
+
+	/**
+	 * Stop background threads used for hedged requests, called when the module is undeployed.
+	 */
+	public void stop() {
+		HedgedRequests.getInstance().stop();
+	}
+
+
+	/**
+	 * Request a new "AccessToken" using the grant type set in adapter module.
+	 * <p>
+	 * Requests that time out or are answered with 429 or 5xx are retried with exponential backoff and jitter, honouring
+	 * the "Retry-After" header of the authentication server. Retries stop after "tokenRequestRetries" attempts, or when
+	 * the next attempt would start after "tokenRequestRetryBudget" seconds have passed. Waiting for admission and the
+	 * connect and read timeouts of each attempt are limited to what is left of the budget (0 means no budget). Without
+	 * "tokenRequestRetryBudget" the budget covers at least the connect and read timeout of the first attempt.
+	 * @param credentials <i>Credentials</i> set in adapter module
+	 * @return <i>DO_AccessToken</i> "AccessToken" object containing response data
+	 * @throws AccessTokenException
+	 */
+	public DO_AccessToken requestToken(Credentials credentials) throws AccessTokenException {
+		return requestToken(credentials, getDeadline(credentials.getConfig()));
+	}
+
+
+	/**
+	 * Request a new "AccessToken" as <i>requestToken(Credentials)</i>, with a deadline calculated in advance.
+	 * @param credentials <i>Credentials</i> set in adapter module
+	 * @param deadline <i>long</i> <i>System.nanoTime()</i> deadline from <i>getDeadline</i>
+	 * @return <i>DO_AccessToken</i> "AccessToken" object containing response data
+	 * @throws AccessTokenException
+	 */
+	public DO_AccessToken requestToken(Credentials credentials, long deadline) throws AccessTokenException {
+		DO_Authentication config = credentials.getConfig();
+
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return requestTokenOnce(credentials, deadline);
+			} catch (AccessTokenException e) {
+				if (!e.isRetryable() || attempt >= config.getTokenRequestRetriesValue()) {
+					throw e;
+				}
+
+				long delayMillis = getRetryDelayMillis(config, attempt, e);
+				if (deadline != AdaptiveTimeouts.NO_DEADLINE && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) - deadline >= 0) {
+					throw e;
+				}
+
+				TokenMetrics.getInstance().forEndpoint(credentials.getAuthenticationUrl()).recordRetry();
+				try {
+					Thread.sleep(delayMillis);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Calculate the deadline of a token request starting now, from "tokenRequestRetryBudget".
+	 * @param config <i>DO_Authentication</i> data set in adapter module
+	 * @return <i>long</i> <i>System.nanoTime()</i> deadline, or <i>AdaptiveTimeouts.NO_DEADLINE</i> if there is no budget
+	 */
+	public static long getDeadline(DO_Authentication config) {
+		long budgetSeconds = config.getTokenRequestRetryBudgetSeconds();
+		return budgetSeconds > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(budgetSeconds) : AdaptiveTimeouts.NO_DEADLINE;
+	}
+
+
+	/**
+	 * Calculate delay before the next retry, exponential backoff with jitter.
+	 * A "Retry-After" delay sent by the authentication server is used as lower bound.
+	 * @param config <i>DO_Authentication</i> data set in adapter module
+	 * @param attempt <i>int</i> number of the failed attempt, starting with 0
+	 * @param e <i>AccessTokenException</i> failure of the attempt
+	 * @return <i>long</i> delay in milliseconds
+	 */
+	private long getRetryDelayMillis(DO_Authentication config, int attempt, AccessTokenException e) {
+		long base = config.getTokenRequestRetryBackoffMillis();
+		int shift = Math.min(attempt, 20);
+		// Compared before shifting, a large "tokenRequestRetryBackoff" would otherwise overflow
+		long backoff = base > MAX_RETRY_BACKOFF_MILLIS >> shift ? MAX_RETRY_BACKOFF_MILLIS : base << shift;
+
+		// Half fixed, half random, so concurrent channels do not retry in lockstep
+		long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+		return Math.max(delay, e.getRetryAfterMillis());
+	}
+
+
+	/**
+	 * Request a new "AccessToken" once. If "hedgePercentile" is set in adapter module, a slow request is hedged by a second request.
+	 */
+	private DO_AccessToken requestTokenOnce(final Credentials credentials, final long deadlineNanos) throws AccessTokenException {
+		if (!credentials.getConfig().isHedgingEnabled()) {
+			return request(credentials, credentials.getGrantType(), null, deadlineNanos);
+		}
+
+		return HedgedRequests.getInstance().request(credentials, new Callable<DO_AccessToken>() {
+			@Override
+			public DO_AccessToken call() throws AccessTokenException {
+				return request(credentials, credentials.getGrantType(), null, deadlineNanos);
+			}
+		});
+	}
+
+
+	/**
+	 * Renew an "AccessToken" using the "refresh_token" grant.
+	 * @param credentials <i>Credentials</i> set in adapter module
+	 * @param refreshToken <i>String</i> refresh token returned together with the previous "AccessToken"
+	 * @return <i>DO_AccessToken</i> "AccessToken" object containing response data
+	 * @throws AccessTokenException
+	 */
+	public DO_AccessToken refreshToken(Credentials credentials, String refreshToken) throws AccessTokenException {
+		return request(credentials, GRANT_TYPE_REFRESH_TOKEN, refreshToken, AdaptiveTimeouts.NO_DEADLINE);
+	}
+
+
+	/**
+	 * Admit a request to the authentication server, limiting the rate and number of concurrent requests if set in adapter module.
+	 * @param deadlineNanos <i>long</i> <i>System.nanoTime</i> the request must be completed by, or <b>NO_DEADLINE</b>
+	 */
+	private DO_AccessToken request(Credentials credentials, String grantType, String refreshToken, long deadlineNanos) throws AccessTokenException {
+		DO_Authentication config = credentials.getConfig();
+		String url = credentials.getAuthenticationUrl();
+		EndpointMetrics metrics = TokenMetrics.getInstance().forEndpoint(url);
+		long waitMillis = config.getAdmissionWaitTimeoutMillis();
+
+		if (deadlineNanos != AdaptiveTimeouts.NO_DEADLINE) {
+			waitMillis = Math.max(0, Math.min(waitMillis, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())));
+		}
+
+		try {
+			if (config.isRateLimitEnabled()) {
+				long delay = RateLimiter.forEndpoint(url).reserve(config.getRateLimitValue(), config.getRateLimitBurstValue(), waitMillis);
+				if (delay == RateLimiter.REJECTED) {
+					metrics.recordRateLimitRejection();
+					throw new AccessTokenException("Rate limit of " + config.getRateLimitValue() + " requests per second exceeded for authentication server: " + url, AccessTokenException.NOT_SENT);
+				}
+				Thread.sleep(delay);
+				// Waiting for the rate limit counts towards the admission wait
+				waitMillis = Math.max(0, waitMillis - delay);
+			}
+
+			if (!config.isBulkheadEnabled()) {
+				return send(credentials, grantType, refreshToken, deadlineNanos);
+			}
+
+			Bulkhead bulkhead = Bulkhead.forEndpoint(url, config.getMaxConcurrentRequestsValue());
+			if (!bulkhead.tryAcquire(waitMillis)) {
+				metrics.recordBulkheadRejection();
+				throw new AccessTokenException("Timed out after " + waitMillis + " ms waiting for a free connection to authentication server: " + url, AccessTokenException.NOT_SENT);
+			}
+			try {
+				return send(credentials, grantType, refreshToken, deadlineNanos);
+			} finally {
+				bulkhead.release();
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AccessTokenException("Interrupted while waiting to call authentication server: " + url, AccessTokenException.NOT_SENT);
+		}
+	}
+
+
+	/**
+	 * Send a request to the authentication server, unless the circuit breaker is open.
+	 */
+	private DO_AccessToken send(Credentials credentials, String grantType, String refreshToken, long deadlineNanos) throws AccessTokenException {
+		DO_Authentication config = credentials.getConfig();
+		CircuitBreaker breaker = CircuitBreaker.forEndpoint(credentials.getAuthenticationUrl());
+		boolean breakerEnabled = config.isCircuitBreakerEnabled();
+
+		if (breakerEnabled && !breaker.tryAcquire(config.getCircuitBreakerOpenTimeSeconds() * 1000L)) {
+			String errorMessage = "Circuit breaker open, authentication server is not called: " + credentials.getAuthenticationUrl();
+			throw new AccessTokenException(errorMessage, AccessTokenException.NOT_SENT);
+		}
+
+		EndpointMetrics metrics = TokenMetrics.getInstance().forEndpoint(credentials.getAuthenticationUrl());
+		long start = System.nanoTime();
+		// Server reached, set when the response shows that the server is available
+		boolean available = false;
+		try {
+			// Create connection to authentication server
+			AdaptiveTimeouts timeouts = AdaptiveTimeouts.forRequest(credentials, deadlineNanos);
+			HttpURLConnection con = createAccessTokenConnection(credentials, timeouts, grantType, refreshToken);
+
+			// Get access token data from response (json)
+			DO_AccessToken at = readResponse(con, metrics);
+
+			metrics.recordTokenRequest(System.nanoTime() - start, true);
+			available = true;
+			return at;
+
+		} catch (AccessTokenException e) {
+			metrics.recordTokenRequest(System.nanoTime() - start, false);
+			// A rejected request still means the server is available
+			available = !e.isServerUnavailable();
+			throw e;
+
+		} finally {
+			// Always report the outcome, also on unexpected errors, so a half-open breaker does not stay half-open
+			if (breakerEnabled) {
+				if (available) {
+					breaker.onSuccess();
+				} else {
+					breaker.onFailure(config.getCircuitBreakerThresholdValue());
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Create an <i>HttpURLConnection</i> using data set in adapter module
+	 * @return HttpURLConnection
+	 * @throws AccessTokenException
+	 */
+	private HttpURLConnection createAccessTokenConnection(Credentials credentials, AdaptiveTimeouts timeouts, String grantType, String refreshToken) throws AccessTokenException {
+		HttpURLConnection con = null;
+		try {
+			URL url = new URL(credentials.getAuthenticationUrl());
+			con = (HttpURLConnection) url.openConnection();
+			con.setRequestMethod("GET");
+			con.setConnectTimeout(timeouts.getConnectTimeoutMillis());
+			con.setReadTimeout(timeouts.getReadTimeoutMillis());
+			con.setUseCaches(false);
+
+			createRequestHeaders(con, credentials, grantType, refreshToken);
+
+		} catch (IOException e) {
+			String errorMessage = "Error creating Http connection to authentication server with url: " + credentials.getAuthenticationUrl();
+			throw new AccessTokenException(errorMessage);
+		}
+
+		return con;
+	}
+
+
+	/**
+	 * Create request headers based on values set in adapter module
+	 * @param con <i>HttpURLConnection</i> to authentication server
+	 */
+	private void createRequestHeaders(HttpURLConnection con, Credentials credentials, String grantType, String refreshToken) {
+		con.setRequestProperty("client-id", credentials.getClientId());
+		con.setRequestProperty("client-secret", credentials.getClientSecret());
+		con.setRequestProperty("grant-type", grantType);
+		con.setRequestProperty("api-version", credentials.getApiVersion());
+
+		if (refreshToken != null) {
+			con.setRequestProperty("refresh-token", refreshToken);
+		}
+	}
+
+
+	/**
+	 * Read response from authentication server. The response body is parsed directly from the connection stream.
+	 * Time to connect and time to receive the response status are recorded for adaptive timeouts, a timed out
+	 * request is recorded with the time waited, so the timeouts grow when the authentication server slows down.
+	 * @param con <i>HttpURLConnection</i> to authentication server
+	 * @param metrics <i>EndpointMetrics</i> of authentication server
+	 * @return <i>DO_AccessToken</i> "AccessToken" object containing response data
+	 * @throws AccessTokenException
+	 */
+	private DO_AccessToken readResponse(HttpURLConnection con, EndpointMetrics metrics) throws AccessTokenException {
+		InputStream in = null;
+		boolean connected = false;
+		long start = System.nanoTime();
+		try {
+			con.connect();
+			connected = true;
+			long sent = System.nanoTime();
+			metrics.recordConnect(sent - start);
+			start = sent;
+
+			int responseCode = con.getResponseCode();
+			metrics.recordResponseWait(System.nanoTime() - start);
+			metrics.recordResponseCode(responseCode);
+
+			if (responseCode != 200) {
+				// Get error data from JSON response
+				DO_AccessTokenError ate = readErrorResponse(con);
+
+				// Throw exception
+				String errorMessage = "Error getting AccessToken with server code: " + responseCode + " and message: " + (ate != null ? ate.message : null);
+				throw new AccessTokenException(errorMessage, responseCode, getRetryAfterMillis(con));
+			}
+
+			in = con.getInputStream();
+			return TokenResponseParser.parseAccessToken(in);
+
+		} catch (JsonSyntaxException e) {
+			metrics.recordParseFailure();
+			String errorMessage = "Error parsing json response: " + e.getMessage();
+			throw new AccessTokenException(errorMessage, 200);
+		} catch (SocketTimeoutException e) {
+			if (connected) {
+				metrics.recordResponseWait(System.nanoTime() - start);
+			} else {
+				metrics.recordConnect(System.nanoTime() - start);
+			}
+			con.disconnect();
+			String errorMessage = "Timed out waiting for response from authentication server: " + e.getMessage();
+			throw new AccessTokenException(errorMessage);
+		} catch (IOException e) {
+			String errorMessage = "Error getting response from HttpConnection inputStream: " + e.getMessage();
+			throw new AccessTokenException(errorMessage);
+		} finally {
+			release(in);
+		}
+	}
+
+
+	/**
+	 * Read the "Retry-After" header, given either as delay in seconds or as http date.
+	 * @param con <i>HttpURLConnection</i> to authentication server
+	 * @return <i>long</i> delay in milliseconds, or <b>NO_RETRY_AFTER</b> if the header is missing or invalid
+	 */
+	private long getRetryAfterMillis(HttpURLConnection con) {
+		String retryAfter = con.getHeaderField("Retry-After");
+
+		if (retryAfter == null || retryAfter.trim().equals("")) {
+			return AccessTokenException.NO_RETRY_AFTER;
+		}
+
+		try {
+			return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+		} catch (NumberFormatException e) {
+			long date = con.getHeaderFieldDate("Retry-After", -1);
+			return date < 0 ? AccessTokenException.NO_RETRY_AFTER : Math.max(0, date - System.currentTimeMillis());
+		}
+	}
+
+
+	/**
+	 * Read error data from the error stream of a failed request.
+	 * @param con <i>HttpURLConnection</i> to authentication server
+	 * @return <i>DO_AccessTokenError</i> or null if the response has no readable error body
+	 */
+	private DO_AccessTokenError readErrorResponse(HttpURLConnection con) {
+		InputStream errorStream = con.getErrorStream();
+
+		if (errorStream == null) {
+			return null;
+		}
+
+		try {
+			return TokenResponseParser.parseAccessTokenError(errorStream);
+		} catch (JsonSyntaxException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			release(errorStream);
+		}
+	}
+
+
+	/**
+	 * Read the rest of a response stream and close it, so the connection can be reused.
+	 * @param in <i>InputStream</i> response body, may be null
+	 */
+	private void release(InputStream in) {
+		if (in == null) {
+			return;
+		}
+
+		try {
+			byte[] buffer = new byte[512];
+			while (in.read(buffer) != -1) {
+				// Discard
+			}
+		} catch (IOException e) {
+			// Connection can not be reused, it is closed below
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// Nothing more to release
+			}
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package dk.radius.java.module.catalystone.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import dk.radius.java.module.catalystone.pojo.DO_AccessToken;
+import dk.radius.java.module.catalystone.pojo.DO_AccessTokenError;
+
+/**
+ * Parses authentication server responses directly from the connection <i>InputStream</i> using <i>gson</i> streaming api.
+ * Only the fields used by the module are read, everything else is skipped without being materialized.
+ * @see <a href="https://sites.google.com/site/gson/streaming">gson streaming documentation</a>
+ */
+final class TokenResponseParser {
+	private static final TypeAdapter<DO_AccessToken> ACCESS_TOKEN_ADAPTER = new AccessTokenAdapter();
+	private static final TypeAdapter<DO_AccessTokenError> ACCESS_TOKEN_ERROR_ADAPTER = new AccessTokenErrorAdapter();
+
+
+	private TokenResponseParser() {
+	}
+
+
+	/**
+	 * Parse a successful response.
+	 * @param in <i>InputStream</i> response body, not closed by this method
+	 * @return <i>DO_AccessToken</i> "AccessToken" object containing response data
+	 * @throws JsonSyntaxException if the response is not a json object, or is empty or truncated
+	 * @throws IOException on errors reading the stream
+	 */
+	static DO_AccessToken parseAccessToken(InputStream in) throws IOException {
+		return parse(in, ACCESS_TOKEN_ADAPTER);
+	}
+
+
+	/**
+	 * Parse an error response.
+	 * @param in <i>InputStream</i> response body, not closed by this method
+	 * @return <i>DO_AccessTokenError</i> error object containing response data
+	 * @throws JsonSyntaxException if the response is not a json object, or is empty or truncated
+	 * @throws IOException on errors reading the stream
+	 */
+	static DO_AccessTokenError parseAccessTokenError(InputStream in) throws IOException {
+		return parse(in, ACCESS_TOKEN_ERROR_ADAPTER);
+	}
+
+
+	private static <T> T parse(InputStream in, TypeAdapter<T> adapter) throws IOException {
+		JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		try {
+			return adapter.read(reader);
+		} catch (MalformedJsonException e) {
+			throw new JsonSyntaxException(e.getMessage(), e);
+		} catch (EOFException e) {
+			// Body ended before the json object was complete, the server answered but not with a token
+			throw new JsonSyntaxException("Incomplete json response: " + e.getMessage(), e);
+		} catch (IllegalStateException e) {
+			// Unexpected json token, eg. an array instead of an object
+			throw new JsonSyntaxException(e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Read a value as string, numbers are returned as their string representation.
+	 */
+	private static String nextStringOrNull(JsonReader reader) throws IOException {
+		JsonToken token = reader.peek();
+
+		if (token == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+		if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+			return reader.nextString();
+		}
+		if (token == JsonToken.BOOLEAN) {
+			return String.valueOf(reader.nextBoolean());
+		}
+
+		reader.skipValue();
+		return null;
+	}
+
+
+	private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+		if (value != null) {
+			writer.name(name).value(value);
+		}
+	}
+
+
+	/**
+	 * Reads "access_token", "refresh_token", "expires_in" and "refresh_token_expires_in".
+	 */
+	private static final class AccessTokenAdapter extends TypeAdapter<DO_AccessToken> {
+
+		@Override
+		public DO_AccessToken read(JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+
+			DO_AccessToken at = new DO_AccessToken();
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+
+				if (name.equals("access_token")) {
+					at.accessToken = nextStringOrNull(reader);
+				} else if (name.equals("expires_in")) {
+					at.expiresIn = nextStringOrNull(reader);
+				} else if (name.equals("refresh_token")) {
+					at.refreshToken = nextStringOrNull(reader);
+				} else if (name.equals("refresh_token_expires_in")) {
+					at.refreshTokenExpiresIn = nextStringOrNull(reader);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+
+			return at;
+		}
+
+		@Override
+		public void write(JsonWriter writer, DO_AccessToken at) throws IOException {
+			if (at == null) {
+				writer.nullValue();
+				return;
+			}
+
+			writer.beginObject();
+			writeString(writer, "access_token", at.accessToken);
+			writeString(writer, "refresh_token", at.refreshToken);
+			writeString(writer, "expires_in", at.expiresIn);
+			writeString(writer, "refresh_token_expires_in", at.refreshTokenExpiresIn);
+			writer.endObject();
+		}
+	}
+
+
+	/**
+	 * Reads "message".
+	 */
+	private static final class AccessTokenErrorAdapter extends TypeAdapter<DO_AccessTokenError> {
+
+		@Override
+		public DO_AccessTokenError read(JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+
+			DO_AccessTokenError ate = new DO_AccessTokenError();
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals("message")) {
+					ate.message = nextStringOrNull(reader);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+
+			return ate;
+		}
+
+		@Override
+		public void write(JsonWriter writer, DO_AccessTokenError ate) throws IOException {
+			if (ate == null) {
+				writer.nullValue();
+				return;
+			}
+
+			writer.beginObject();
+			writeString(writer, "message", ate.message);
+			writer.endObject();
+		}
+	}
+}
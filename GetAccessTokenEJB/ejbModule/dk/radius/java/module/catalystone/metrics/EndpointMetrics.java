@@ -0,0 +1,199 @@
+package dk.radius.java.module.catalystone.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latencies of one authentication server url. All record methods are lock-free and do not allocate,
+ * apart from starting a new window of the recent connect and response latencies once a minute.
+ */
+public final class EndpointMetrics {
+	private static final int MAX_RESPONSE_CODE = 600;
+	private static final int OTHER_RESPONSE_CODE = 0;
+	private static final long RECENT_LATENCY_WINDOW_MILLIS = 60000;
+
+	private final String authenticationUrl;
+	private final LongAdder tokenRequests = new LongAdder();
+	private final LongAdder tokenRequestFailures = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LongAdder refreshAheadRenewals = new LongAdder();
+	private final LongAdder parseFailures = new LongAdder();
+	private final LongAdder hedgedRequests = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder bulkheadRejections = new LongAdder();
+	private final LongAdder rateLimitRejections = new LongAdder();
+	private final AtomicLongArray responseCodes = new AtomicLongArray(MAX_RESPONSE_CODE);
+	private final LatencyHistogram tokenRequestLatency = new LatencyHistogram();
+	private final LatencyHistogram processLatency = new LatencyHistogram();
+	// Recent latencies used for adaptive timeouts and hedging, not part of the statistics and not reset with them
+	private final RollingLatencyHistogram recentTokenRequestLatency = new RollingLatencyHistogram(RECENT_LATENCY_WINDOW_MILLIS);
+	private final RollingLatencyHistogram connectLatency = new RollingLatencyHistogram(RECENT_LATENCY_WINDOW_MILLIS);
+	private final RollingLatencyHistogram responseLatency = new RollingLatencyHistogram(RECENT_LATENCY_WINDOW_MILLIS);
+
+
+	EndpointMetrics(String authenticationUrl) {
+		this.authenticationUrl = authenticationUrl;
+	}
+
+
+	public void recordTokenRequest(long nanos, boolean success) {
+		tokenRequests.increment();
+		if (!success) {
+			tokenRequestFailures.increment();
+		}
+		tokenRequestLatency.record(nanos);
+		recentTokenRequestLatency.record(nanos);
+	}
+
+	public void recordResponseCode(int responseCode) {
+		responseCodes.incrementAndGet(responseCode > 0 && responseCode < MAX_RESPONSE_CODE ? responseCode : OTHER_RESPONSE_CODE);
+	}
+
+	public void recordCacheHit() {
+		cacheHits.increment();
+	}
+
+	public void recordCacheMiss() {
+		cacheMisses.increment();
+	}
+
+	public void recordRefreshAheadRenewal() {
+		refreshAheadRenewals.increment();
+	}
+
+	public void recordParseFailure() {
+		parseFailures.increment();
+	}
+
+	public void recordHedgedRequest() {
+		hedgedRequests.increment();
+	}
+
+	public void recordRetry() {
+		retries.increment();
+	}
+
+	public void recordBulkheadRejection() {
+		bulkheadRejections.increment();
+	}
+
+	public void recordRateLimitRejection() {
+		rateLimitRejections.increment();
+	}
+
+	public void recordProcess(long nanos) {
+		processLatency.record(nanos);
+	}
+
+	/**
+	 * @param nanos <i>long</i> time to open the connection
+	 */
+	public void recordConnect(long nanos) {
+		connectLatency.record(nanos);
+	}
+
+	/**
+	 * @param nanos <i>long</i> time from sending the request until the response status is received
+	 */
+	public void recordResponseWait(long nanos) {
+		responseLatency.record(nanos);
+	}
+
+
+	/**
+	 * @return <i>long</i> number of recorded token requests
+	 */
+	public long getTokenRequestCount() {
+		return tokenRequests.sum();
+	}
+
+
+	/**
+	 * @param quantile <i>double</i> between 0 and 1, eg. 0.99
+	 * @return <i>long</i> percentile of token request latency in microseconds
+	 */
+	public long getTokenRequestLatencyMicros(double quantile) {
+		return tokenRequestLatency.percentileMicros(quantile);
+	}
+
+
+	/**
+	 * @return <i>RollingLatencyHistogram</i> duration of token requests during the last minutes
+	 */
+	public RollingLatencyHistogram getRecentTokenRequestLatency() {
+		return recentTokenRequestLatency;
+	}
+
+
+	/**
+	 * @return <i>RollingLatencyHistogram</i> time to open connections during the last minutes
+	 */
+	public RollingLatencyHistogram getRecentConnectLatency() {
+		return connectLatency;
+	}
+
+
+	/**
+	 * @return <i>RollingLatencyHistogram</i> time to receive response status during the last minutes
+	 */
+	public RollingLatencyHistogram getRecentResponseLatency() {
+		return responseLatency;
+	}
+
+
+	/**
+	 * Create a snapshot of the current values.
+	 * @return <i>EndpointStatistics</i> snapshot
+	 */
+	EndpointStatistics snapshot() {
+		Map<String, Long> codes = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < MAX_RESPONSE_CODE; i++) {
+			long count = responseCodes.get(i);
+			if (count > 0) {
+				codes.put(i == OTHER_RESPONSE_CODE ? "other" : String.valueOf(i), count);
+			}
+		}
+
+		return new EndpointStatistics(authenticationUrl,
+				tokenRequests.sum(),
+				tokenRequestFailures.sum(),
+				cacheHits.sum(),
+				cacheMisses.sum(),
+				refreshAheadRenewals.sum(),
+				parseFailures.sum(),
+				hedgedRequests.sum(),
+				retries.sum(),
+				bulkheadRejections.sum(),
+				rateLimitRejections.sum(),
+				codes,
+				tokenRequestLatency.percentileMicros(0.5),
+				tokenRequestLatency.percentileMicros(0.99),
+				tokenRequestLatency.percentileMicros(0.999),
+				processLatency.count(),
+				processLatency.percentileMicros(0.5),
+				processLatency.percentileMicros(0.99),
+				processLatency.percentileMicros(0.999));
+	}
+
+
+	void reset() {
+		tokenRequests.reset();
+		tokenRequestFailures.reset();
+		cacheHits.reset();
+		cacheMisses.reset();
+		refreshAheadRenewals.reset();
+		parseFailures.reset();
+		hedgedRequests.reset();
+		retries.reset();
+		bulkheadRejections.reset();
+		rateLimitRejections.reset();
+		for (int i = 0; i < MAX_RESPONSE_CODE; i++) {
+			responseCodes.set(i, 0);
+		}
+		tokenRequestLatency.reset();
+		processLatency.reset();
+	}
+}
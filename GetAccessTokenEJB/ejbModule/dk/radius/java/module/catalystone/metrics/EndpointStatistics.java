@@ -0,0 +1,120 @@
+package dk.radius.java.module.catalystone.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+
+/**
+ * Snapshot of the metrics of one authentication server url, exposed through JMX. Latencies are in microseconds.
+ */
+public final class EndpointStatistics {
+	private final String authenticationUrl;
+	private final long tokenRequests;
+	private final long tokenRequestFailures;
+	private final long cacheHits;
+	private final long cacheMisses;
+	private final long refreshAheadRenewals;
+	private final long parseFailures;
+	private final long hedgedRequests;
+	private final long retries;
+	private final long bulkheadRejections;
+	private final long rateLimitRejections;
+	private final Map<String, Long> responseCodes;
+	private final long tokenRequestP50;
+	private final long tokenRequestP99;
+	private final long tokenRequestP999;
+	private final long processCount;
+	private final long processP50;
+	private final long processP99;
+	private final long processP999;
+
+
+	@ConstructorProperties({"authenticationUrl", "tokenRequests", "tokenRequestFailures", "cacheHits", "cacheMisses",
+		"refreshAheadRenewals", "parseFailures", "hedgedRequests", "retries", "bulkheadRejections", "rateLimitRejections", "responseCodes", "tokenRequestP50", "tokenRequestP99", "tokenRequestP999",
+		"processCount", "processP50", "processP99", "processP999"})
+	public EndpointStatistics(String authenticationUrl, long tokenRequests, long tokenRequestFailures, long cacheHits,
+			long cacheMisses, long refreshAheadRenewals, long parseFailures, long hedgedRequests, long retries, long bulkheadRejections, long rateLimitRejections, Map<String, Long> responseCodes,
+			long tokenRequestP50, long tokenRequestP99, long tokenRequestP999,
+			long processCount, long processP50, long processP99, long processP999) {
+		this.authenticationUrl = authenticationUrl;
+		this.tokenRequests = tokenRequests;
+		this.tokenRequestFailures = tokenRequestFailures;
+		this.cacheHits = cacheHits;
+		this.cacheMisses = cacheMisses;
+		this.refreshAheadRenewals = refreshAheadRenewals;
+		this.parseFailures = parseFailures;
+		this.hedgedRequests = hedgedRequests;
+		this.retries = retries;
+		this.bulkheadRejections = bulkheadRejections;
+		this.rateLimitRejections = rateLimitRejections;
+		this.responseCodes = responseCodes;
+		this.tokenRequestP50 = tokenRequestP50;
+		this.tokenRequestP99 = tokenRequestP99;
+		this.tokenRequestP999 = tokenRequestP999;
+		this.processCount = processCount;
+		this.processP50 = processP50;
+		this.processP99 = processP99;
+		this.processP999 = processP999;
+	}
+
+
+	/*
+	 * Getters
+	 */
+	public String getAuthenticationUrl() {
+		return authenticationUrl;
+	}
+	public long getTokenRequests() {
+		return tokenRequests;
+	}
+	public long getTokenRequestFailures() {
+		return tokenRequestFailures;
+	}
+	public long getCacheHits() {
+		return cacheHits;
+	}
+	public long getCacheMisses() {
+		return cacheMisses;
+	}
+	public long getRefreshAheadRenewals() {
+		return refreshAheadRenewals;
+	}
+	public long getParseFailures() {
+		return parseFailures;
+	}
+	public long getHedgedRequests() {
+		return hedgedRequests;
+	}
+	public long getRetries() {
+		return retries;
+	}
+	public long getBulkheadRejections() {
+		return bulkheadRejections;
+	}
+	public long getRateLimitRejections() {
+		return rateLimitRejections;
+	}
+	public Map<String, Long> getResponseCodes() {
+		return responseCodes;
+	}
+	public long getTokenRequestP50() {
+		return tokenRequestP50;
+	}
+	public long getTokenRequestP99() {
+		return tokenRequestP99;
+	}
+	public long getTokenRequestP999() {
+		return tokenRequestP999;
+	}
+	public long getProcessCount() {
+		return processCount;
+	}
+	public long getProcessP50() {
+		return processP50;
+	}
+	public long getProcessP99() {
+		return processP99;
+	}
+	public long getProcessP999() {
+		return processP999;
+	}
+}
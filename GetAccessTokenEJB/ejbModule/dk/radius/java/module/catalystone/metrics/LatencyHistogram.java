@@ -0,0 +1,130 @@
+package dk.radius.java.module.catalystone.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with a fixed set of buckets, recording does not allocate.
+ * <p>
+ * Values are recorded in microseconds. Values below 16 get a bucket each, larger values are grouped in buckets of
+ * 8 per power of two, so a reported percentile is at most 12.5% above the actual value.
+ */
+public final class LatencyHistogram {
+	private static final int LINEAR_BUCKETS = 16;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Up to 2^40 microseconds (about 12 days), larger values end in the last bucket
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 4 + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+
+	/**
+	 * Record a latency.
+	 * @param nanos <i>long</i> latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(bucketOf(Math.max(0, nanos / 1000L)));
+	}
+
+
+	/**
+	 * Get percentile of the recorded values.
+	 * @param quantile <i>double</i> between 0 and 1, eg. 0.99
+	 * @return <i>long</i> upper bound of the bucket holding the percentile in microseconds, 0 if nothing is recorded
+	 */
+	public long percentileMicros(double quantile) {
+		long[] snapshot = newSnapshot();
+		addTo(snapshot);
+		return percentileMicros(snapshot, quantile);
+	}
+
+
+	/**
+	 * Get percentile of a snapshot.
+	 * @param snapshot <i>long[]</i> bucket counts filled by <i>addTo</i>
+	 * @param quantile <i>double</i> between 0 and 1, eg. 0.99
+	 * @return <i>long</i> upper bound of the bucket holding the percentile in microseconds, 0 if snapshot is empty
+	 */
+	static long percentileMicros(long[] snapshot, double quantile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += snapshot[i];
+		}
+
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return upperBoundOf(i);
+			}
+		}
+		return upperBoundOf(BUCKETS - 1);
+	}
+
+
+	/**
+	 * @return <i>long</i> number of recorded values
+	 */
+	public long count() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+
+	/**
+	 * Add the current bucket counts to a snapshot, used to combine histograms.
+	 * @param snapshot <i>long[]</i> created by <i>newSnapshot</i>
+	 */
+	void addTo(long[] snapshot) {
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] += counts.get(i);
+		}
+	}
+
+
+	static long[] newSnapshot() {
+		return new long[BUCKETS];
+	}
+
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+
+
+	static int bucketOf(long micros) {
+		if (micros < LINEAR_BUCKETS) {
+			return (int) micros;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+	}
+
+
+	static long upperBoundOf(int bucket) {
+		if (bucket < LINEAR_BUCKETS) {
+			return bucket;
+		}
+
+		int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+		int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
@@ -0,0 +1,92 @@
+package dk.radius.java.module.catalystone.metrics;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latency histogram covering only recent values.
+ * <p>
+ * Values are recorded in the current window. When the window length has passed, the current window becomes the
+ * previous one and the oldest is dropped, so percentiles cover between one and two window lengths. Switching
+ * windows is a single compare-and-set, recording stays lock-free.
+ */
+public final class RollingLatencyHistogram {
+	private final long windowNanos;
+	private final AtomicReference<Windows> windows;
+
+
+	/**
+	 * @param windowMillis <i>long</i> length of one window
+	 */
+	public RollingLatencyHistogram(long windowMillis) {
+		this.windowNanos = windowMillis * 1000000L;
+		this.windows = new AtomicReference<Windows>(new Windows(new LatencyHistogram(), new LatencyHistogram(), System.nanoTime()));
+	}
+
+
+	/**
+	 * Record a latency.
+	 * @param nanos <i>long</i> latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		current().current.record(nanos);
+	}
+
+
+	/**
+	 * Get percentile of the recent values.
+	 * @param quantile <i>double</i> between 0 and 1, eg. 0.99
+	 * @return <i>long</i> percentile in microseconds, 0 if nothing is recorded
+	 */
+	public long percentileMicros(double quantile) {
+		Windows w = current();
+		long[] snapshot = LatencyHistogram.newSnapshot();
+		w.current.addTo(snapshot);
+		w.previous.addTo(snapshot);
+		return LatencyHistogram.percentileMicros(snapshot, quantile);
+	}
+
+
+	/**
+	 * @return <i>long</i> number of recent values
+	 */
+	public long count() {
+		Windows w = current();
+		return w.current.count() + w.previous.count();
+	}
+
+
+	public void reset() {
+		windows.set(new Windows(new LatencyHistogram(), new LatencyHistogram(), System.nanoTime()));
+	}
+
+
+	private Windows current() {
+		Windows w = windows.get();
+		long now = System.nanoTime();
+
+		while (now - w.startNanos >= windowNanos) {
+			// Window idle for more than two lengths holds no recent values at all
+			LatencyHistogram previous = now - w.startNanos >= 2 * windowNanos ? new LatencyHistogram() : w.current;
+			Windows next = new Windows(new LatencyHistogram(), previous, now);
+			if (windows.compareAndSet(w, next)) {
+				return next;
+			}
+			w = windows.get();
+		}
+
+		return w;
+	}
+
+
+	private static final class Windows {
+		private final LatencyHistogram current;
+		private final LatencyHistogram previous;
+		private final long startNanos;
+
+		private Windows(LatencyHistogram current, LatencyHistogram previous, long startNanos) {
+			this.current = current;
+			this.previous = previous;
+			this.startNanos = startNanos;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package dk.radius.java.module.catalystone.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import dk.radius.java.module.catalystone.cache.TokenCache;
+
+/**
+ * Metrics of token acquisition per authentication server url, registered as MBean
+ * "dk.radius.catalystone:type=GetAccessToken,name=TokenMetrics".
+ */
+public final class TokenMetrics implements TokenMetricsMXBean {
+	private static final String OBJECT_NAME = "dk.radius.catalystone:type=GetAccessToken,name=TokenMetrics";
+	private static final TokenMetrics INSTANCE = new TokenMetrics();
+
+	private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+	private final LongAdder validationFailures = new LongAdder();
+	private volatile boolean registered = false;
+
+
+	private TokenMetrics() {
+	}
+
+
+	public static TokenMetrics getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Register MBean in the platform MBean server, an MBean left by a previous deployment is replaced.
+	 * @throws JMException
+	 */
+	public synchronized void register() throws JMException {
+		if (registered) {
+			return;
+		}
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(this, name);
+		registered = true;
+	}
+
+
+	/**
+	 * Unregister MBean, so the platform MBean server does not keep the classloader of an undeployed module alive.
+	 * @throws JMException
+	 */
+	public synchronized void unregister() throws JMException {
+		if (!registered) {
+			return;
+		}
+
+		registered = false;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+
+		// Only remove the MBean if it belongs to this deployment, a newer deployment may have replaced it already
+		if (server.isRegistered(name) && server.getClassLoaderFor(name) == TokenMetrics.class.getClassLoader()) {
+			server.unregisterMBean(name);
+		}
+	}
+
+
+	/**
+	 * Get metrics of an authentication server url.
+	 * @param authenticationUrl <i>String</i> url of authentication server
+	 * @return <i>EndpointMetrics</i> of url
+	 */
+	public EndpointMetrics forEndpoint(String authenticationUrl) {
+		EndpointMetrics metrics = endpoints.get(authenticationUrl);
+
+		if (metrics == null) {
+			EndpointMetrics created = new EndpointMetrics(authenticationUrl);
+			metrics = endpoints.putIfAbsent(authenticationUrl, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+
+		return metrics;
+	}
+
+
+	public void recordValidationFailure() {
+		validationFailures.increment();
+	}
+
+
+	@Override
+	public List<EndpointStatistics> getEndpointStatistics() {
+		List<EndpointStatistics> statistics = new ArrayList<EndpointStatistics>();
+		for (EndpointMetrics metrics : endpoints.values()) {
+			statistics.add(metrics.snapshot());
+		}
+		return statistics;
+	}
+
+
+	@Override
+	public long getValidationFailures() {
+		return validationFailures.sum();
+	}
+
+
+	@Override
+	public int getTokenCacheSize() {
+		return TokenCache.getInstance().size();
+	}
+
+
+	@Override
+	public long getTokenCacheEvictions() {
+		return TokenCache.getInstance().getEvictionCount();
+	}
+
+
+	@Override
+	public void reset() {
+		for (EndpointMetrics metrics : endpoints.values()) {
+			metrics.reset();
+		}
+		validationFailures.reset();
+	}
+}
@@ -0,0 +1,34 @@
+package dk.radius.java.module.catalystone.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the token acquisition metrics.
+ */
+public interface TokenMetricsMXBean {
+
+	/**
+	 * @return <i>List</i> statistics of each authentication server url
+	 */
+	List<EndpointStatistics> getEndpointStatistics();
+
+	/**
+	 * @return <i>long</i> number of messages failing module parameter validation
+	 */
+	long getValidationFailures();
+
+	/**
+	 * @return <i>int</i> number of tokens in the node local token cache
+	 */
+	int getTokenCacheSize();
+
+	/**
+	 * @return <i>long</i> number of tokens evicted from the node local token cache because it was full
+	 */
+	long getTokenCacheEvictions();
+
+	/**
+	 * Reset all counters and latencies.
+	 */
+	void reset();
+}
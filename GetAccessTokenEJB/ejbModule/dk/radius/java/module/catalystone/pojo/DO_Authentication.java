@@ -6,18 +6,60 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import dk.radius.java.module.catalystone.audit.AuditLevel;
+
 public class DO_Authentication {
 	private String authenticationUrl;
 	private String clientId;
 	private String clientSecret;
-	private DO_AccessToken accessTokenObject;
 	private String apiVersion;
 	private String grantType;
 	private String dynamicConfigurationPropertyName;
 	private String adapterType;
 	private boolean debugMode = false;
+	private String tokenExpiryMargin;
+	private String refreshAhead;
+	private String tokenRequestWaitTimeout;
+	private String connectTimeout;
+	private String readTimeout;
+	private String auditLevel;
+	private String configCacheTtl;
+	private String circuitBreakerThreshold;
+	private String circuitBreakerOpenTime;
+	private boolean staleTokenGrace = false;
+	private String tokenStore;
+	private String tokenStoreDirectory;
+	private String hedgePercentile;
+	private String hedgeMaxInFlight;
+	private String tokenRequestRetries;
+	private String tokenRequestRetryBackoff;
+	private String tokenRequestRetryBudget;
+	private String maxConcurrentRequests;
+	private String rateLimit;
+	private String rateLimitBurst;
+	private String admissionWaitTimeout;
+	private String clockSkew;
+	private String adaptiveTimeoutFactor;
+	private String adaptiveTimeoutMin;
+	private String failureCacheTtl;
+	private List<String> supportedTokenStores = Arrays.asList(new String[]{"memory", "file"});
 	private List<String> supportedAdapterTypes = Arrays.asList(new String[]{"REST", "HTTP", "SOAP"});
 	
+	private final long DEFAULT_TOKEN_EXPIRY_MARGIN_SECONDS = 60;
+	private final long DEFAULT_TOKEN_REQUEST_WAIT_TIMEOUT_SECONDS = 30;
+	private final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+	private final int DEFAULT_READ_TIMEOUT_MILLIS = 30000;
+	private final long DEFAULT_CONFIG_CACHE_TTL_SECONDS = 60;
+	private final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+	private final long DEFAULT_CIRCUIT_BREAKER_OPEN_TIME_SECONDS = 30;
+	private final int DEFAULT_HEDGE_MAX_IN_FLIGHT = 1;
+	private final int DEFAULT_TOKEN_REQUEST_RETRIES = 2;
+	private final long DEFAULT_TOKEN_REQUEST_RETRY_BACKOFF_MILLIS = 250;
+	private final long DEFAULT_TOKEN_REQUEST_RETRY_BUDGET_SECONDS = 10;
+	private final long DEFAULT_ADMISSION_WAIT_TIMEOUT_MILLIS = 5000;
+	private final long DEFAULT_CLOCK_SKEW_SECONDS = 30;
+	private final long DEFAULT_ADAPTIVE_TIMEOUT_MIN_MILLIS = 1000;
+	private final long DEFAULT_FAILURE_CACHE_TTL_SECONDS = 30;
 	private final String DYNAMIC_CONFIGURATION_PROPERTY_NAMESPACE = "http://sap.com/xi/XI/System/";
 	private final String ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER = "###PLACEHODER###";
 	private final String ERROR_MESSAGE_MODULE_PARAMETER_EMPTY = "ModuleParameter \"" 
@@ -36,6 +78,63 @@ public class DO_Authentication {
 		ArrayList<String> errorMessages = new ArrayList<String>();
 		String errorMessage;
 		
+		validateTokenRequestParameters(errorMessages);
+		
+		if(dynamicConfigurationPropertyName == null) {
+			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_NULL.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "accessTokenHeaderName");
+			errorMessages.add(errorMessage);
+		}
+		else if(dynamicConfigurationPropertyName.equals("")) {
+			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_EMPTY.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "accessTokenHeaderName");
+			errorMessages.add(errorMessage);
+		}
+		
+		if(adapterType == null) {
+			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_NULL.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "adapterType");
+			errorMessages.add(errorMessage);
+		}
+		else if(adapterType.equals("")) {
+			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_EMPTY.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "adapterType");
+			errorMessages.add(errorMessage);
+		} else {
+			// If value is found, check that it is a supported one
+			if (!supportedAdapterTypes.contains(adapterType)) {
+				errorMessage = "ModuleParameter \"adapterType\": " 
+					     + adapterType 
+					     + " not supported. Supported types are: " 
+					     + supportedAdapterTypes.toString();
+			
+				errorMessages.add(errorMessage);
+			}
+		}
+		
+		validateOptionalParameters(errorMessages);
+		
+		throwValidationErrors(errorMessages);
+	}
+
+
+	/**
+	 * Validate only the attributes needed to request a token, not the ones used to set the "AccessToken" header.
+	 * @throws ValidationException
+	 */
+	public void validateTokenRequest() throws ValidationException {
+		ArrayList<String> errorMessages = new ArrayList<String>();
+		
+		validateTokenRequestParameters(errorMessages);
+		validateOptionalParameters(errorMessages);
+		
+		throwValidationErrors(errorMessages);
+	}
+
+
+	/**
+	 * Validate mandatory attributes sent to the authentication server.
+	 * @param errorMessages <i>List</i> error messages to add to
+	 */
+	private void validateTokenRequestParameters(List<String> errorMessages) {
+		String errorMessage;
+		
 		if(authenticationUrl == null) {
 			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_NULL.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "authenticationUrl");
 			errorMessages.add(errorMessage);
@@ -83,40 +182,73 @@ public class DO_Authentication {
 			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_EMPTY.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "grantType");
 			errorMessages.add(errorMessage);
 		}
+	}
+
+
+	/**
+	 * Validate optional attributes, only if set.
+	 * @param errorMessages <i>List</i> error messages to add to
+	 */
+	private void validateOptionalParameters(List<String> errorMessages) {
+		String errorMessage;
 		
-		if(dynamicConfigurationPropertyName == null) {
-			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_NULL.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "accessTokenHeaderName");
-			errorMessages.add(errorMessage);
-		}
-		else if(dynamicConfigurationPropertyName.equals("")) {
-			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_EMPTY.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "accessTokenHeaderName");
-			errorMessages.add(errorMessage);
+		validateOptionalNumber("tokenExpiryMargin", tokenExpiryMargin, errorMessages);
+		validateOptionalNumber("refreshAhead", refreshAhead, errorMessages);
+		validateOptionalNumber("tokenRequestWaitTimeout", tokenRequestWaitTimeout, errorMessages);
+		validateOptionalNumber("connectTimeout", connectTimeout, errorMessages);
+		validateOptionalNumber("readTimeout", readTimeout, errorMessages);
+		validateOptionalNumber("configCacheTtl", configCacheTtl, errorMessages);
+		validateOptionalNumber("circuitBreakerThreshold", circuitBreakerThreshold, errorMessages);
+		validateOptionalNumber("circuitBreakerOpenTime", circuitBreakerOpenTime, errorMessages);
+		validateOptionalNumber("hedgeMaxInFlight", hedgeMaxInFlight, errorMessages);
+		validateOptionalNumber("hedgePercentile", hedgePercentile, errorMessages);
+		validateOptionalNumber("tokenRequestRetries", tokenRequestRetries, errorMessages);
+		validateOptionalNumber("tokenRequestRetryBackoff", tokenRequestRetryBackoff, errorMessages);
+		validateOptionalNumber("tokenRequestRetryBudget", tokenRequestRetryBudget, errorMessages);
+		validateOptionalNumber("maxConcurrentRequests", maxConcurrentRequests, errorMessages);
+		validateOptionalDecimal("rateLimit", rateLimit, errorMessages);
+		validateOptionalNumber("rateLimitBurst", rateLimitBurst, errorMessages);
+		validateOptionalNumber("admissionWaitTimeout", admissionWaitTimeout, errorMessages);
+		validateOptionalNumber("clockSkew", clockSkew, errorMessages);
+		validateOptionalDecimal("adaptiveTimeoutFactor", adaptiveTimeoutFactor, errorMessages);
+		validateOptionalNumber("adaptiveTimeoutMin", adaptiveTimeoutMin, errorMessages);
+		validateOptionalNumber("failureCacheTtl", failureCacheTtl, errorMessages);
+		if (parseNumber(hedgePercentile, 0) >= 100) {
+			errorMessages.add("ModuleParameter \"hedgePercentile\" must be below 100, found: " + hedgePercentile);
 		}
 		
-		if(adapterType == null) {
-			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_NULL.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "adapterType");
-			errorMessages.add(errorMessage);
-		}
-		else if(adapterType.equals("")) {
-			errorMessage = ERROR_MESSAGE_MODULE_PARAMETER_EMPTY.replace(ERROR_MESSAGE_MODULE_PARAMTER_PLACEHOLDER, "adapterType");
-			errorMessages.add(errorMessage);
-		} else {
-			// If value is found, check that it is a supported one
-			if (!supportedAdapterTypes.contains(adapterType)) {
-				errorMessage = "ModuleParameter \"adapterType\": " 
-					     + adapterType 
+		if (tokenStore != null && !tokenStore.equals("")) {
+			if (!supportedTokenStores.contains(tokenStore)) {
+				errorMessage = "ModuleParameter \"tokenStore\": " 
+					     + tokenStore 
 					     + " not supported. Supported types are: " 
-					     + supportedAdapterTypes.toString();
-			
+					     + supportedTokenStores.toString();
+				errorMessages.add(errorMessage);
+			} else if (tokenStore.equals("file") && (tokenStoreDirectory == null || tokenStoreDirectory.equals(""))) {
+				errorMessage = "ModuleParameter \"tokenStoreDirectory\" must have a value when \"tokenStore\" is \"file\"!";
 				errorMessages.add(errorMessage);
 			}
 		}
 		
-		// Throw error if any error messages has been set
+		if (auditLevel != null && !auditLevel.equals("") && AuditLevel.fromString(auditLevel) == null) {
+			errorMessage = "ModuleParameter \"auditLevel\": " 
+				     + auditLevel 
+				     + " not supported. Supported levels are: " 
+				     + Arrays.toString(AuditLevel.values());
+			errorMessages.add(errorMessage);
+		}
+	}
+
+
+	/**
+	 * @param errorMessages <i>List</i> error messages found
+	 * @throws ValidationException if any error messages are found
+	 */
+	private void throwValidationErrors(List<String> errorMessages) throws ValidationException {
 		if (errorMessages.size() != 0) {
 			errorMessages.add(0, "Validation errors found: " + errorMessages.size());
 			throw new ValidationException(errorMessages.toString());
-		}	
+		}
 	}
 
 	
@@ -140,6 +272,126 @@ public class DO_Authentication {
 	}
 
 	
+	/**
+	 * Compare module parameter values.
+	 * @param other <i>DO_Authentication</i> to compare with
+	 * @return boolean true if all module parameters have the same values
+	 */
+	public boolean hasSameParameters(DO_Authentication other) {
+		return debugMode == other.debugMode
+				&& staleTokenGrace == other.staleTokenGrace
+				&& equals(authenticationUrl, other.authenticationUrl)
+				&& equals(clientId, other.clientId)
+				&& equals(clientSecret, other.clientSecret)
+				&& equals(apiVersion, other.apiVersion)
+				&& equals(grantType, other.grantType)
+				&& equals(dynamicConfigurationPropertyName, other.dynamicConfigurationPropertyName)
+				&& equals(adapterType, other.adapterType)
+				&& equals(tokenExpiryMargin, other.tokenExpiryMargin)
+				&& equals(refreshAhead, other.refreshAhead)
+				&& equals(tokenRequestWaitTimeout, other.tokenRequestWaitTimeout)
+				&& equals(connectTimeout, other.connectTimeout)
+				&& equals(readTimeout, other.readTimeout)
+				&& equals(auditLevel, other.auditLevel)
+				&& equals(configCacheTtl, other.configCacheTtl)
+				&& equals(circuitBreakerThreshold, other.circuitBreakerThreshold)
+				&& equals(circuitBreakerOpenTime, other.circuitBreakerOpenTime)
+				&& equals(tokenStore, other.tokenStore)
+				&& equals(tokenStoreDirectory, other.tokenStoreDirectory)
+				&& equals(hedgePercentile, other.hedgePercentile)
+				&& equals(hedgeMaxInFlight, other.hedgeMaxInFlight)
+				&& equals(tokenRequestRetries, other.tokenRequestRetries)
+				&& equals(tokenRequestRetryBackoff, other.tokenRequestRetryBackoff)
+				&& equals(tokenRequestRetryBudget, other.tokenRequestRetryBudget)
+				&& equals(maxConcurrentRequests, other.maxConcurrentRequests)
+				&& equals(rateLimit, other.rateLimit)
+				&& equals(rateLimitBurst, other.rateLimitBurst)
+				&& equals(admissionWaitTimeout, other.admissionWaitTimeout)
+				&& equals(clockSkew, other.clockSkew)
+				&& equals(adaptiveTimeoutFactor, other.adaptiveTimeoutFactor)
+				&& equals(adaptiveTimeoutMin, other.adaptiveTimeoutMin)
+				&& equals(failureCacheTtl, other.failureCacheTtl);
+	}
+	
+	
+	private static boolean equals(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+	
+	
+	/**
+	 * Validates that an optional module parameter, if set, is a non-negative number.
+	 * @param parameterName <i>String</i> name of module parameter
+	 * @param value <i>String</i> value of module parameter
+	 * @param errorMessages <i>List</i> error messages to add to
+	 */
+	private void validateOptionalNumber(String parameterName, String value, List<String> errorMessages) {
+		if (value == null || value.equals("")) {
+			return;
+		}
+		
+		if (parseNumber(value, -1) < 0) {
+			errorMessages.add("ModuleParameter \"" + parameterName + "\" must be a positive number, found: " + value);
+		}
+	}
+	
+	
+	/**
+	 * Validates that an optional module parameter, if set, is a non-negative decimal number, eg. "0.5".
+	 * @param parameterName <i>String</i> name of module parameter
+	 * @param value <i>String</i> value of module parameter
+	 * @param errorMessages <i>List</i> error messages to add to
+	 */
+	private void validateOptionalDecimal(String parameterName, String value, List<String> errorMessages) {
+		if (value == null || value.equals("")) {
+			return;
+		}
+		
+		if (parseDecimal(value, -1) < 0) {
+			errorMessages.add("ModuleParameter \"" + parameterName + "\" must be a positive decimal number, found: " + value);
+		}
+	}
+	
+	
+	/**
+	 * Parse an optional decimal module parameter.
+	 * @param value <i>String</i> value of module parameter
+	 * @param defaultValue <i>double</i> returned if value is not set, not a number or infinite
+	 * @return <i>double</i> parsed value
+	 */
+	private double parseDecimal(String value, double defaultValue) {
+		if (value == null || value.equals("")) {
+			return defaultValue;
+		}
+		
+		try {
+			double parsed = Double.parseDouble(value.trim());
+			return Double.isNaN(parsed) || Double.isInfinite(parsed) ? defaultValue : parsed;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+	
+	
+	/**
+	 * Parse an optional numeric module parameter.
+	 * @param value <i>String</i> value of module parameter
+	 * @param defaultValue <i>long</i> returned if value is not set or not a number
+	 * @return <i>long</i> parsed value
+	 */
+	private long parseNumber(String value, long defaultValue) {
+		if (value == null || value.equals("")) {
+			return defaultValue;
+		}
+		
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	
 	/*
 	 * Getters and setters
 	 */
@@ -179,12 +431,6 @@ public class DO_Authentication {
 	public void setDebugMode(boolean debugMode) {
 		this.debugMode = debugMode;
 	}
-	public DO_AccessToken getAccessTokenObject() {
-		return accessTokenObject;
-	}
-	public void setAccessTokenObject(DO_AccessToken accessTokenObject) {
-		this.accessTokenObject = accessTokenObject;
-	}
 	public String getDynamicConfigurationPropertyName() {
 		return dynamicConfigurationPropertyName;
 	}
@@ -201,4 +447,253 @@ public class DO_Authentication {
 	public void setAdapterType(String adapterType) {
 		this.adapterType = adapterType;
 	}
+	public String getTokenExpiryMargin() {
+		return tokenExpiryMargin;
+	}
+	public void setTokenExpiryMargin(String tokenExpiryMargin) {
+		this.tokenExpiryMargin = tokenExpiryMargin;
+	}
+	public long getTokenExpiryMarginSeconds() {
+		return parseNumber(tokenExpiryMargin, DEFAULT_TOKEN_EXPIRY_MARGIN_SECONDS);
+	}
+	public String getRefreshAhead() {
+		return refreshAhead;
+	}
+	public void setRefreshAhead(String refreshAhead) {
+		this.refreshAhead = refreshAhead;
+	}
+	public boolean isRefreshAheadEnabled() {
+		return getRefreshAheadSeconds() > 0;
+	}
+	public long getRefreshAheadSeconds() {
+		return parseNumber(refreshAhead, 0);
+	}
+	public String getTokenRequestWaitTimeout() {
+		return tokenRequestWaitTimeout;
+	}
+	public void setTokenRequestWaitTimeout(String tokenRequestWaitTimeout) {
+		this.tokenRequestWaitTimeout = tokenRequestWaitTimeout;
+	}
+	public long getTokenRequestWaitTimeoutSeconds() {
+		return parseNumber(tokenRequestWaitTimeout, DEFAULT_TOKEN_REQUEST_WAIT_TIMEOUT_SECONDS);
+	}
+	public String getConnectTimeout() {
+		return connectTimeout;
+	}
+	public void setConnectTimeout(String connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+	public int getConnectTimeoutMillis() {
+		return (int) Math.min(Integer.MAX_VALUE, parseNumber(connectTimeout, DEFAULT_CONNECT_TIMEOUT_MILLIS));
+	}
+	public String getReadTimeout() {
+		return readTimeout;
+	}
+	public void setReadTimeout(String readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+	public int getReadTimeoutMillis() {
+		return (int) Math.min(Integer.MAX_VALUE, parseNumber(readTimeout, DEFAULT_READ_TIMEOUT_MILLIS));
+	}
+	public String getAuditLevel() {
+		return auditLevel;
+	}
+	public void setAuditLevel(String auditLevel) {
+		this.auditLevel = auditLevel;
+	}
+	/**
+	 * Get effective audit level, "debugEnabled" takes precedence over "auditLevel".
+	 * @return <i>AuditLevel</i> of module
+	 */
+	public AuditLevel getEffectiveAuditLevel() {
+		if (debugMode) {
+			return AuditLevel.DEBUG;
+		}
+		AuditLevel level = AuditLevel.fromString(auditLevel);
+		return level != null ? level : AuditLevel.NORMAL;
+	}
+	public String getConfigCacheTtl() {
+		return configCacheTtl;
+	}
+	public void setConfigCacheTtl(String configCacheTtl) {
+		this.configCacheTtl = configCacheTtl;
+	}
+	public long getConfigCacheTtlSeconds() {
+		return parseNumber(configCacheTtl, DEFAULT_CONFIG_CACHE_TTL_SECONDS);
+	}
+	public String getCircuitBreakerThreshold() {
+		return circuitBreakerThreshold;
+	}
+	public void setCircuitBreakerThreshold(String circuitBreakerThreshold) {
+		this.circuitBreakerThreshold = circuitBreakerThreshold;
+	}
+	public int getCircuitBreakerThresholdValue() {
+		return (int) Math.min(Integer.MAX_VALUE, parseNumber(circuitBreakerThreshold, DEFAULT_CIRCUIT_BREAKER_THRESHOLD));
+	}
+	public boolean isCircuitBreakerEnabled() {
+		return getCircuitBreakerThresholdValue() > 0;
+	}
+	public String getCircuitBreakerOpenTime() {
+		return circuitBreakerOpenTime;
+	}
+	public void setCircuitBreakerOpenTime(String circuitBreakerOpenTime) {
+		this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+	}
+	public long getCircuitBreakerOpenTimeSeconds() {
+		return parseNumber(circuitBreakerOpenTime, DEFAULT_CIRCUIT_BREAKER_OPEN_TIME_SECONDS);
+	}
+	public boolean isStaleTokenGrace() {
+		return staleTokenGrace;
+	}
+	public void setStaleTokenGrace(boolean staleTokenGrace) {
+		this.staleTokenGrace = staleTokenGrace;
+	}
+	public String getTokenStore() {
+		return tokenStore;
+	}
+	public void setTokenStore(String tokenStore) {
+		this.tokenStore = tokenStore;
+	}
+	public String getTokenStoreDirectory() {
+		return tokenStoreDirectory;
+	}
+	public void setTokenStoreDirectory(String tokenStoreDirectory) {
+		this.tokenStoreDirectory = tokenStoreDirectory;
+	}
+	public String getHedgePercentile() {
+		return hedgePercentile;
+	}
+	public void setHedgePercentile(String hedgePercentile) {
+		this.hedgePercentile = hedgePercentile;
+	}
+	public int getHedgePercentileValue() {
+		return (int) parseNumber(hedgePercentile, 0);
+	}
+	public boolean isHedgingEnabled() {
+		return getHedgePercentileValue() > 0;
+	}
+	public String getHedgeMaxInFlight() {
+		return hedgeMaxInFlight;
+	}
+	public void setHedgeMaxInFlight(String hedgeMaxInFlight) {
+		this.hedgeMaxInFlight = hedgeMaxInFlight;
+	}
+	public int getHedgeMaxInFlightValue() {
+		return (int) Math.min(Integer.MAX_VALUE, parseNumber(hedgeMaxInFlight, DEFAULT_HEDGE_MAX_IN_FLIGHT));
+	}
+	public String getTokenRequestRetries() {
+		return tokenRequestRetries;
+	}
+	public void setTokenRequestRetries(String tokenRequestRetries) {
+		this.tokenRequestRetries = tokenRequestRetries;
+	}
+	public int getTokenRequestRetriesValue() {
+		return (int) Math.min(Integer.MAX_VALUE, parseNumber(tokenRequestRetries, DEFAULT_TOKEN_REQUEST_RETRIES));
+	}
+	public String getTokenRequestRetryBackoff() {
+		return tokenRequestRetryBackoff;
+	}
+	public void setTokenRequestRetryBackoff(String tokenRequestRetryBackoff) {
+		this.tokenRequestRetryBackoff = tokenRequestRetryBackoff;
+	}
+	public long getTokenRequestRetryBackoffMillis() {
+		return parseNumber(tokenRequestRetryBackoff, DEFAULT_TOKEN_REQUEST_RETRY_BACKOFF_MILLIS);
+	}
+	public String getTokenRequestRetryBudget() {
+		return tokenRequestRetryBudget;
+	}
+	public void setTokenRequestRetryBudget(String tokenRequestRetryBudget) {
+		this.tokenRequestRetryBudget = tokenRequestRetryBudget;
+	}
+	/**
+	 * Get retry budget. If not set, the default is raised to the connect and read timeout of one attempt, so the
+	 * budget does not shorten the configured timeouts.
+	 * @return <i>long</i> budget in seconds
+	 */
+	public long getTokenRequestRetryBudgetSeconds() {
+		long timeoutSeconds = (getConnectTimeoutMillis() + (long) getReadTimeoutMillis() + 999) / 1000;
+		return parseNumber(tokenRequestRetryBudget, Math.max(DEFAULT_TOKEN_REQUEST_RETRY_BUDGET_SECONDS, timeoutSeconds));
+	}
+	public String getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+	public void setMaxConcurrentRequests(String maxConcurrentRequests) {
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+	public int getMaxConcurrentRequestsValue() {
+		return (int) Math.min(Integer.MAX_VALUE, parseNumber(maxConcurrentRequests, 0));
+	}
+	public boolean isBulkheadEnabled() {
+		return getMaxConcurrentRequestsValue() > 0;
+	}
+	public String getRateLimit() {
+		return rateLimit;
+	}
+	public void setRateLimit(String rateLimit) {
+		this.rateLimit = rateLimit;
+	}
+	public double getRateLimitValue() {
+		return parseDecimal(rateLimit, 0);
+	}
+	public boolean isRateLimitEnabled() {
+		return getRateLimitValue() > 0;
+	}
+	public String getRateLimitBurst() {
+		return rateLimitBurst;
+	}
+	public void setRateLimitBurst(String rateLimitBurst) {
+		this.rateLimitBurst = rateLimitBurst;
+	}
+	public int getRateLimitBurstValue() {
+		// Bucket must hold at least one token, default allows one second worth of requests at once
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(1, parseNumber(rateLimitBurst, (long) Math.ceil(getRateLimitValue()))));
+	}
+	public String getAdmissionWaitTimeout() {
+		return admissionWaitTimeout;
+	}
+	public void setAdmissionWaitTimeout(String admissionWaitTimeout) {
+		this.admissionWaitTimeout = admissionWaitTimeout;
+	}
+	public long getAdmissionWaitTimeoutMillis() {
+		return parseNumber(admissionWaitTimeout, DEFAULT_ADMISSION_WAIT_TIMEOUT_MILLIS);
+	}
+	public String getClockSkew() {
+		return clockSkew;
+	}
+	public void setClockSkew(String clockSkew) {
+		this.clockSkew = clockSkew;
+	}
+	public long getClockSkewSeconds() {
+		return parseNumber(clockSkew, DEFAULT_CLOCK_SKEW_SECONDS);
+	}
+	public String getAdaptiveTimeoutFactor() {
+		return adaptiveTimeoutFactor;
+	}
+	public void setAdaptiveTimeoutFactor(String adaptiveTimeoutFactor) {
+		this.adaptiveTimeoutFactor = adaptiveTimeoutFactor;
+	}
+	public double getAdaptiveTimeoutFactorValue() {
+		return parseDecimal(adaptiveTimeoutFactor, 0);
+	}
+	public boolean isAdaptiveTimeoutEnabled() {
+		return getAdaptiveTimeoutFactorValue() > 0;
+	}
+	public String getAdaptiveTimeoutMin() {
+		return adaptiveTimeoutMin;
+	}
+	public void setAdaptiveTimeoutMin(String adaptiveTimeoutMin) {
+		this.adaptiveTimeoutMin = adaptiveTimeoutMin;
+	}
+	public long getAdaptiveTimeoutMinMillis() {
+		return parseNumber(adaptiveTimeoutMin, DEFAULT_ADAPTIVE_TIMEOUT_MIN_MILLIS);
+	}
+	public String getFailureCacheTtl() {
+		return failureCacheTtl;
+	}
+	public void setFailureCacheTtl(String failureCacheTtl) {
+		this.failureCacheTtl = failureCacheTtl;
+	}
+	public long getFailureCacheTtlSeconds() {
+		return parseNumber(failureCacheTtl, DEFAULT_FAILURE_CACHE_TTL_SECONDS);
+	}
 }